@@ -0,0 +1,228 @@
+/*
+ * Tic Tac Toe A simple machine learning simulator.
+ *
+ * Class: EngineBenchmarks
+ *
+ * Microbenchmarks for the hot paths of the game engine, run with the MicroBenchmark harness:
+ *  - Game.evaluateGameState, simulateMove and possibleMoves
+ *  - RandomAgent.pickDefensiveMove and pickAggressiveMove
+ *  - getSuccessorStates for each opponent, and pickMove and getSuccessorStates for the same opponent written as rules
+ *    (see MoveRules)
+ *  - the learning agents' genStateKey and gameFromKey, and the StateKey equivalents
+ *  - StateEnumerator.enumerate, on one thread and in parallel
+ *  - pickMove for the trained learning agents, and for the move tables compiled from them (see MoveTableCompiler)
+ *
+ * Each benchmark cycles through a fixed pool of in-progress positions taken from random games, so that the results
+ * aren't skewed by a single board. Times are per call, and allocations are bytes per call.
+ *
+ * Usage: java EngineBenchmarks [NameFilter]
+ *
+ * Author: 	Toby Waite
+ * Contact: toby.waite@gmail.com
+ * Updated: November 16th, 2010.
+ */
+
+import java.util.ArrayList;
+import java.util.Random;
+
+public class EngineBenchmarks {
+
+	// number of positions in the pool. Must be a power of two.
+	private static final int PoolSize = 1024;
+	private static final long PoolSeed = 491;
+
+	private static Game[] positions;
+	private static int[] keys;
+
+	public static void main(String[] args) {
+		buildPositions();
+		MicroBenchmark.runAll(createBenchmarks(), (args.length > 0) ? args[0] : null);
+	}
+
+	// Fill the pool with in-progress positions, by playing random games from a fixed seed and keeping a random
+	//  position from each.
+	private static void buildPositions(){
+		Random random = new Random(PoolSeed);
+		NaiveAgent first = new NaiveAgent(), second = new NaiveAgent();
+		positions = new Game[PoolSize];
+		keys = new int[PoolSize];
+		for(int i = 0; i < PoolSize; ){
+			Game game = new Game(first, second);
+			int stopAt = random.nextInt(Consts.NumSquares - 1);
+			for(int turn = 0; turn < stopAt && game.evaluateGameState() == Consts.GameInProgress; turn++){
+				Integer[] moves = game.possibleMoves();
+				game = game.simulateMove(moves[random.nextInt(moves.length)]);
+			}
+			if(game.evaluateGameState() != Consts.GameInProgress)
+				continue;
+			positions[i] = game;
+			keys[i] = StateKey.encode(game.getBoard());
+			i++;
+		}
+	}
+
+	public static ArrayList<MicroBenchmark> createBenchmarks(){
+		ArrayList<MicroBenchmark> benchmarks = new ArrayList<MicroBenchmark>();
+
+		benchmarks.add(new MicroBenchmark("Game.evaluateGameState"){
+			public long run(int ops){
+				long result = 0;
+				for(int i = 0; i < ops; i++)
+					result += positions[i & (PoolSize-1)].evaluateGameState();
+				return result;
+			}
+		});
+		benchmarks.add(new MicroBenchmark("Game.simulateMove"){
+			public long run(int ops){
+				long result = 0;
+				for(int i = 0; i < ops; i++){
+					Game game = positions[i & (PoolSize-1)];
+					result += game.simulateMove(i % Consts.NumSquares).evaluateGameState();
+				}
+				return result;
+			}
+		});
+		benchmarks.add(new MicroBenchmark("Game.possibleMoves"){
+			public long run(int ops){
+				long result = 0;
+				for(int i = 0; i < ops; i++)
+					result += positions[i & (PoolSize-1)].possibleMoves().length;
+				return result;
+			}
+		});
+
+		final BalancedAgent scanner = new BalancedAgent();
+		benchmarks.add(new MicroBenchmark("RandomAgent.pickDefensiveMove"){
+			public long run(int ops){
+				long result = 0;
+				for(int i = 0; i < ops; i++)
+					result += scanner.pickDefensiveMove(positions[i & (PoolSize-1)]);
+				return result;
+			}
+		});
+		benchmarks.add(new MicroBenchmark("RandomAgent.pickAggressiveMove"){
+			public long run(int ops){
+				long result = 0;
+				for(int i = 0; i < ops; i++)
+					result += scanner.pickAggressiveMove(positions[i & (PoolSize-1)]);
+				return result;
+			}
+		});
+
+		Agent[] opponents = {new NaiveAgent(), new DefensiveAgent(), new AggressiveAgent(), new BalancedAgent(),
+							 new HumanAgent()};
+		for(final Agent opponent : opponents){
+			benchmarks.add(new MicroBenchmark(opponent.getClass().getName() + ".getSuccessorStates"){
+				public long run(int ops){
+					long result = 0;
+					for(int i = 0; i < ops; i++)
+						result += opponent.getSuccessorStates(positions[i & (PoolSize-1)]).size();
+					return result;
+				}
+			});
+		}
+		final RuleAgent ruleAgent = new RuleAgent(compileRules("win 0.8 > block 0.8 > random"));
+		benchmarks.add(new MicroBenchmark("RuleAgent.getSuccessorStates"){
+			public long run(int ops){
+				long result = 0;
+				for(int i = 0; i < ops; i++)
+					result += ruleAgent.getSuccessorStates(positions[i & (PoolSize-1)]).size();
+				return result;
+			}
+		});
+		benchmarks.add(new MicroBenchmark("BalancedAgent.pickMove"){
+			public long run(int ops){
+				long result = 0;
+				for(int i = 0; i < ops; i++)
+					result += scanner.pickMove(positions[i & (PoolSize-1)]);
+				return result;
+			}
+		});
+		benchmarks.add(new MicroBenchmark("RuleAgent.pickMove"){
+			public long run(int ops){
+				long result = 0;
+				for(int i = 0; i < ops; i++)
+					result += ruleAgent.pickMove(positions[i & (PoolSize-1)]);
+				return result;
+			}
+		});
+
+		final ValueItrAgent learner = new ValueItrAgent();
+		benchmarks.add(new MicroBenchmark("ValueItrAgent.genStateKey"){
+			public long run(int ops){
+				long result = 0;
+				for(int i = 0; i < ops; i++)
+					result += learner.genStateKey(positions[i & (PoolSize-1)].getBoard());
+				return result;
+			}
+		});
+		benchmarks.add(new MicroBenchmark("ValueItrAgent.gameFromKey"){
+			public long run(int ops){
+				long result = 0;
+				for(int i = 0; i < ops; i++)
+					result += learner.gameFromKey(keys[i & (PoolSize-1)]).getTurnsElapsed();
+				return result;
+			}
+		});
+		benchmarks.add(new MicroBenchmark("StateKey.encode"){
+			public long run(int ops){
+				long result = 0;
+				for(int i = 0; i < ops; i++)
+					result += StateKey.encode(positions[i & (PoolSize-1)].getBoard());
+				return result;
+			}
+		});
+		benchmarks.add(new MicroBenchmark("StateKey.decode"){
+			public long run(int ops){
+				long result = 0;
+				for(int i = 0; i < ops; i++)
+					result += StateKey.decode(keys[i & (PoolSize-1)])[i % Consts.NumSquares];
+				return result;
+			}
+		});
+		benchmarks.add(new MicroBenchmark("StateEnumerator.enumerate"){
+			public long run(int ops){
+				long result = 0;
+				for(int i = 0; i < ops; i++)
+					result += StateEnumerator.enumerate(false).length;
+				return result;
+			}
+		});
+		benchmarks.add(new MicroBenchmark("StateEnumerator.enumerate (parallel)"){
+			public long run(int ops){
+				long result = 0;
+				for(int i = 0; i < ops; i++)
+					result += StateEnumerator.enumerate(true).length;
+				return result;
+			}
+		});
+
+		// the learners are trained against the balanced opponent once, before any benchmark is measured.
+		ValueItrAgent valItr = new ValueItrAgent();
+		valItr.initialize(new BalancedAgent());
+		PolicyItrAgent polItr = new PolicyItrAgent();
+		polItr.initialize(new BalancedAgent());
+		Agent[] players = {valItr, polItr, MoveTableCompiler.compile(valItr), MoveTableCompiler.compile(polItr)};
+		String[] playerNames = {"ValueItrAgent", "PolicyItrAgent", "ValueItrAgent (compiled)", "PolicyItrAgent (compiled)"};
+		for(int p = 0; p < players.length; p++){
+			final Agent player = players[p];
+			benchmarks.add(new MicroBenchmark(playerNames[p] + ".pickMove"){
+				public long run(int ops){
+					long result = 0;
+					for(int i = 0; i < ops; i++)
+						result += player.pickMove(positions[i & (PoolSize-1)]);
+					return result;
+				}
+			});
+		}
+		return benchmarks;
+	}
+
+	private static MoveRules compileRules(String rules){
+		try{
+			return MoveRules.parse(rules);
+		} catch(ParameterException e){
+			throw new IllegalArgumentException(e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ * Tic Tac Toe A simple machine learning simulator.
+ *
+ * Class: FrozenAgentStress
+ *
+ * A concurrent stress test of FrozenAgent. ValueItrAgent and PolicyItrAgent are trained against the balanced
+ * opponent and frozen, and each frozen agent is first checked to pick the same move as the agent it came from in
+ * every reachable state. Then one instance of each frozen agent is shared by an increasing number of threads, each
+ * playing its own games against a random mover (with its own generator, so the threads share nothing but the
+ * frozen agent). Every move the frozen agent makes is checked against the move it made on one thread, and the
+ * number of moves picked per second is reported for each thread count.
+ *
+ * The exit status is 1 if any move didn't match.
+ *
+ * Usage: java FrozenAgentStress [MaxThreads] [GamesPerThread]
+ *
+ * Author: 	Toby Waite
+ * Contact: toby.waite@gmail.com
+ * Updated: November 16th, 2010.
+ */
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class FrozenAgentStress {
+
+	private static final long Seed = 42;
+
+	public static void main(String[] args) throws Exception {
+		int maxThreads = (args.length > 0) ? Integer.parseInt(args[0]) :
+						 Math.max(8, 2 * Runtime.getRuntime().availableProcessors());
+		int gamesPerThread = (args.length > 1) ? Integer.parseInt(args[1]) : 200000;
+
+		long mismatches = 0;
+		ValueItrAgent valItr = new ValueItrAgent();
+		valItr.initialize(new BalancedAgent());
+		mismatches += run("ValItr", valItr, valItr.freeze(), maxThreads, gamesPerThread);
+		PolicyItrAgent polItr = new PolicyItrAgent();
+		polItr.initialize(new BalancedAgent());
+		mismatches += run("PolItr", polItr, polItr.freeze(), maxThreads, gamesPerThread);
+
+		System.out.println((mismatches == 0) ? "All moves matched." : mismatches + " moves did not match!");
+		System.exit((mismatches == 0) ? 0 : 1);
+	}
+
+	// check a frozen agent against its learner, then stress it. Returns the number of mismatched moves.
+	private static long run(String name, Agent learner, FrozenAgent frozen, int maxThreads, int gamesPerThread)
+			throws InterruptedException {
+		// every reachable state in progress, with the learner's move from it.
+		StateGraph graph = StateGraph.get();
+		long mismatches = 0;
+		int checked = 0;
+		for(int i = 0; i < graph.size(); i++){
+			if(graph.isTerminal(i))
+				continue;
+			int key = graph.getKey(i);
+			Game game = new Game(learner, learner, StateKey.decode(key));
+			if(frozen.pickMove(game) != learner.pickMove(game))
+				mismatches++;
+			checked++;
+		}
+		System.out.println(name + ": frozen agent checked against the learner in " + checked + " states, " +
+						   mismatches + " mismatches");
+
+		// the moves to expect under load, taken from the frozen agent on this thread.
+		int[] expected = new int[StateKey.NumKeys];
+		for(int key = 0; key < StateKey.NumKeys; key++)
+			expected[key] = frozen.getMove(key);
+
+		System.out.println(String.format("%-8s %8s %14s %14s %10s", "Threads", "Games", "Moves", "Moves/s", "Mismatch"));
+		for(int threads = 1; threads <= maxThreads; threads *= 2)
+			mismatches += stress(frozen, expected, threads, gamesPerThread);
+		return mismatches;
+	}
+
+	// play gamesPerThread games on each of a number of threads, all sharing the one frozen agent.
+	private static long stress(final FrozenAgent frozen, final int[] expected, int threads, final int gamesPerThread)
+			throws InterruptedException {
+		final CountDownLatch ready = new CountDownLatch(threads);
+		final CountDownLatch go = new CountDownLatch(1);
+		final AtomicLong moves = new AtomicLong();
+		final AtomicLong mismatches = new AtomicLong();
+		ArrayList<Thread> workers = new ArrayList<Thread>();
+		for(int t = 0; t < threads; t++){
+			final Random random = new Random(Seed + t);
+			Thread worker = new Thread(new Runnable(){
+				public void run(){
+					ready.countDown();
+					try{
+						go.await();
+					} catch(InterruptedException e){
+						return;
+					}
+					long myMoves = 0, myMismatches = 0;
+					for(int g = 0; g < gamesPerThread; g++){
+						// the frozen agent plays X against random moves, on a game this thread owns. executeMove
+						//  doesn't count turns, so it can't tell a tie from a game in progress; the turn count ends ties.
+						Game game = new Game(frozen, frozen);
+						int[] board = game.getBoard();
+						try{
+							for(int turn = 0; turn < Consts.NumSquares && game.evaluateGameState() == Consts.GameInProgress; turn++){
+								int move;
+								if(turn % 2 == 0){
+									move = frozen.pickMove(game);
+									myMoves++;
+									if(move != expected[StateKey.encode(board)]){
+										myMismatches++;
+										break;
+									}
+								}
+								else{
+									do{
+										move = random.nextInt(Consts.NumSquares);
+									} while(board[move] != Consts.MoveEmpty);
+								}
+								game.executeMove(move);
+							}
+						} catch(InvalidMoveException e){
+							myMismatches++;
+						}
+					}
+					moves.addAndGet(myMoves);
+					mismatches.addAndGet(myMismatches);
+				}
+			});
+			workers.add(worker);
+			worker.start();
+		}
+		ready.await();
+		long start = System.nanoTime();
+		go.countDown();
+		for(Thread worker : workers)
+			worker.join();
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.println(String.format("%-8d %8d %14d %14.0f %10d", threads, (long)threads * gamesPerThread,
+										 moves.get(), moves.get() / seconds, mismatches.get()));
+		return mismatches.get();
+	}
+}
@@ -0,0 +1,198 @@
+/*
+ * Tic Tac Toe A simple machine learning simulator.
+ *
+ * Class: GameServerLoad
+ *
+ * A load generator for GameServer. It opens a number of client connections at once, and each client plays games
+ * against the server, moving at random and checking every move the server sends back against its own copy of the
+ * board. Once every client has finished, it reports the round trip latency of the server's moves (from sending a
+ * command to reading the reply) at the 50th, 90th, 99th and 99.9th percentiles, along with games and moves per
+ * second and the results of the games.
+ *
+ * Without a host and port, a server is started in the same process on a free port, playing a value iteration agent
+ * trained against the balanced opponent, so the whole test runs on localhost with one command. Clients run on
+ * virtual threads where the JVM has them. The exit status is 1 if any client saw a protocol error.
+ *
+ * Usage: java GameServerLoad <Clients> <GamesPerClient> [Host:Port]
+ *
+ * Author: 	Toby Waite
+ * Contact: toby.waite@gmail.com
+ * Updated: November 16th, 2010.
+ */
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class GameServerLoad {
+
+	private static final long Seed = 17;
+
+	private InetSocketAddress address;
+	private int clients;
+	private int gamesPerClient;
+
+	// latencies[client] holds that client's round trip times, in nanoseconds.
+	private long[][] latencies;
+	private int[] latencyCounts;
+	// results from the client's point of view: {wins, ties, losses}.
+	private final AtomicLong[] tally = {new AtomicLong(), new AtomicLong(), new AtomicLong()};
+	private final AtomicLong errors = new AtomicLong();
+
+	public static void main(String[] args) throws Exception {
+		if(args.length < 2 || args.length > 3){
+			System.out.println("Usage: java GameServerLoad <Clients> <GamesPerClient> [Host:Port]");
+			System.exit(1);
+		}
+		GameServerLoad load = new GameServerLoad();
+		load.clients = Integer.parseInt(args[0]);
+		load.gamesPerClient = Integer.parseInt(args[1]);
+
+		GameServer server = null;
+		if(args.length == 3){
+			String[] hostPort = args[2].split(":");
+			load.address = new InetSocketAddress(hostPort[0], Integer.parseInt(hostPort[1]));
+		}
+		else{
+			server = new GameServer(GameServer.createSharedAgent(Consts.AgentValItr, Consts.OpponentBalanced), 0);
+			server.start();
+			load.address = new InetSocketAddress("localhost", server.getPort());
+			System.out.println("Started a local server on port " + server.getPort() +
+							   (VirtualThreads.available() ? " (virtual threads)" : " (platform threads)"));
+		}
+
+		load.run();
+		if(server != null)
+			server.close();
+		System.exit((load.errors.get() == 0) ? 0 : 1);
+	}
+
+	// Connect every client, then start them all at once and wait for them to finish.
+	private void run() throws Exception {
+		latencies = new long[clients][];
+		latencyCounts = new int[clients];
+		final CountDownLatch connected = new CountDownLatch(clients);
+		final CountDownLatch go = new CountDownLatch(1);
+		final CountDownLatch done = new CountDownLatch(clients);
+		ExecutorService pool = VirtualThreads.newPerTaskExecutor("GameServerLoad client");
+		for(int c = 0; c < clients; c++){
+			final int client = c;
+			pool.execute(new Runnable(){
+				public void run(){
+					LineChannel lines = null;
+					try{
+						lines = new LineChannel(SocketChannel.open(address));
+						connected.countDown();
+						go.await();
+						play(client, lines);
+					} catch(Exception e){
+						errors.incrementAndGet();
+						System.out.println("Client " + client + ": " + e);
+					}
+					finally{
+						// a client that couldn't connect mustn't hold up the others.
+						if(lines != null)
+							lines.close();
+						else
+							connected.countDown();
+						done.countDown();
+					}
+				}
+			});
+		}
+		connected.await();
+		System.out.println(clients + " clients connected");
+		long start = System.nanoTime();
+		go.countDown();
+		done.await();
+		double seconds = (System.nanoTime() - start) / 1e9;
+		pool.shutdown();
+		report(seconds);
+	}
+
+	// Play this client's games, moving at random.
+	private void play(int client, LineChannel lines) throws IOException {
+		Random random = new Random(Seed + client);
+		// at most five server replies a game.
+		long[] times = new long[gamesPerClient * 5];
+		int count = 0;
+		for(int g = 0; g < gamesPerClient; g++){
+			int[] board = new int[Consts.NumSquares];
+			String command = "N";
+			while(true){
+				long sent = System.nanoTime();
+				lines.writeLine(command);
+				String reply = lines.readLine();
+				times[count++] = System.nanoTime() - sent;
+				if(reply == null)
+					throw new IOException("server closed the connection");
+				char state;
+				if(reply.startsWith("M ") && reply.length() == 5){
+					int square = reply.charAt(2) - '0';
+					if(square < 0 || square >= Consts.NumSquares || board[square] != Consts.MoveEmpty)
+						throw new IOException("server moved to square " + reply.charAt(2));
+					board[square] = Consts.MoveX;
+					state = reply.charAt(4);
+				}
+				else if(reply.startsWith("E ") && reply.length() == 3)
+					state = reply.charAt(2);
+				else
+					throw new IOException("unexpected reply '" + reply + "'");
+				if(state != '-'){
+					switch(state){
+						case 'O':	tally[0].incrementAndGet(); break;
+						case 'T':	tally[1].incrementAndGet(); break;
+						default:	tally[2].incrementAndGet(); break;
+					}
+					break;
+				}
+				// our move, to a random empty square.
+				int square;
+				do{
+					square = random.nextInt(Consts.NumSquares);
+				} while(board[square] != Consts.MoveEmpty);
+				board[square] = Consts.MoveO;
+				command = Integer.toString(square);
+			}
+		}
+		lines.writeLine("Q");
+		latencies[client] = times;
+		latencyCounts[client] = count;
+	}
+
+	private void report(double seconds){
+		int total = 0;
+		for(int count : latencyCounts)
+			total += count;
+		long[] all = new long[total];
+		int n = 0;
+		for(int c = 0; c < clients; c++){
+			if(latencies[c] != null){
+				System.arraycopy(latencies[c], 0, all, n, latencyCounts[c]);
+				n += latencyCounts[c];
+			}
+		}
+		Arrays.sort(all);
+		long games = tally[0].get() + tally[1].get() + tally[2].get();
+		System.out.println(String.format("%d games in %.2fs: %.0f games/s, %.0f moves/s", games, seconds,
+										 games / seconds, total / seconds));
+		System.out.println("Client won " + tally[0].get() + ", tied " + tally[1].get() + ", lost " + tally[2].get());
+		if(total > 0)
+			System.out.println(String.format("Move latency: p50 %.1fus, p90 %.1fus, p99 %.1fus, p99.9 %.1fus, max %.1fus",
+											 percentile(all, 50) / 1e3, percentile(all, 90) / 1e3,
+											 percentile(all, 99) / 1e3, percentile(all, 99.9) / 1e3,
+											 all[total - 1] / 1e3));
+		System.out.println(errors.get() + " protocol errors");
+	}
+
+	// the value below which the given percentage of the (sorted) values fall.
+	private static long percentile(long[] sorted, double percent){
+		int index = (int)Math.ceil(percent / 100.0 * sorted.length) - 1;
+		return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+	}
+}
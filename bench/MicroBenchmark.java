@@ -0,0 +1,130 @@
+/*
+ * Tic Tac Toe A simple machine learning simulator.
+ *
+ * Class: MicroBenchmark
+ *
+ * A small microbenchmark harness. Each benchmark is a subclass whose run method performs an operation a given number
+ * of times. The harness sizes each measurement iteration to a fixed wall clock time, runs a number of warmup
+ * iterations so the JIT compiler has settled, and then reports the mean time per operation (with its standard
+ * deviation across iterations), the bytes allocated per operation, and the number of garbage collections during
+ * measurement.
+ *
+ * Allocations are read from the per-thread allocation counter of the HotSpot ThreadMXBean, which is the same
+ * counter JMH's GC profiler reports as gc.alloc.rate.norm. JMH itself cannot be used here, because its code
+ * generator rejects benchmark classes in the default package, which is where the engine classes live.
+ *
+ * To keep the JIT compiler from removing work whose result is unused, run methods fold their results into the long
+ * they return, which the harness consumes.
+ *
+ * Author: 	Toby Waite
+ * Contact: toby.waite@gmail.com
+ * Updated: November 16th, 2010.
+ */
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+
+public abstract class MicroBenchmark {
+
+	// harness settings
+	public static final int WarmupIterations = 5;
+	public static final int MeasurementIterations = 5;
+	public static final long IterationNanos = 200000000L; // 200ms
+
+	private String name;
+
+	// results of the last call to measure.
+	private double nanosPerOp;
+	private double nanosError;
+	private double bytesPerOp;
+	private long gcCount;
+
+	// consumes benchmark results so that they can't be optimised away.
+	private static volatile long sink;
+
+	public MicroBenchmark(String benchmarkName){
+		name = benchmarkName;
+	}
+
+	// Perform the benchmarked operation 'ops' times, returning a value that depends on the results.
+	public abstract long run(int ops);
+
+	public String getName(){
+		return name;
+	}
+	public double getNanosPerOp(){
+		return nanosPerOp;
+	}
+	public double getNanosError(){
+		return nanosError;
+	}
+	public double getBytesPerOp(){
+		return bytesPerOp;
+	}
+	public long getGcCount(){
+		return gcCount;
+	}
+
+	// Warm up and measure this benchmark.
+	public void measure(){
+		// find a number of operations that takes roughly IterationNanos.
+		int ops = 1;
+		long elapsed = 0;
+		while(ops < Integer.MAX_VALUE / 2){
+			long start = System.nanoTime();
+			sink += run(ops);
+			elapsed = System.nanoTime() - start;
+			if(elapsed > IterationNanos / 10)
+				break;
+			ops *= 2;
+		}
+		ops = (int)Math.max(1, Math.min(Integer.MAX_VALUE, (long)ops * IterationNanos / Math.max(1, elapsed)));
+
+		for(int i = 0; i < WarmupIterations; i++)
+			sink += run(ops);
+
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+		double[] times = new double[MeasurementIterations];
+		long totalBytes = 0;
+		long gcBefore = countCollections();
+		for(int i = 0; i < MeasurementIterations; i++){
+			long bytesBefore = threads.getThreadAllocatedBytes(threadId);
+			long start = System.nanoTime();
+			sink += run(ops);
+			times[i] = (System.nanoTime() - start) / (double)ops;
+			totalBytes += threads.getThreadAllocatedBytes(threadId) - bytesBefore;
+		}
+		gcCount = countCollections() - gcBefore;
+
+		double sum = 0.0, sumSquares = 0.0;
+		for(double t : times){
+			sum += t;
+			sumSquares += t * t;
+		}
+		nanosPerOp = sum / times.length;
+		nanosError = Math.sqrt(Math.max(0.0, sumSquares / times.length - nanosPerOp * nanosPerOp));
+		bytesPerOp = totalBytes / ((double)ops * MeasurementIterations);
+	}
+
+	private static long countCollections(){
+		long count = 0;
+		for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+			count += Math.max(0, gc.getCollectionCount());
+		return count;
+	}
+
+	// Measure every benchmark whose name contains 'filter' (or all of them if filter is null), printing a table
+	//  of results as each one finishes.
+	public static void runAll(ArrayList<MicroBenchmark> benchmarks, String filter){
+		System.out.println(String.format("%-44s %12s %10s %12s %6s", "Benchmark", "ns/op", "error", "B/op", "gc"));
+		for(MicroBenchmark benchmark : benchmarks){
+			if(filter != null && !benchmark.getName().contains(filter))
+				continue;
+			benchmark.measure();
+			System.out.println(String.format("%-44s %12.2f %10.2f %12.1f %6d", benchmark.getName(),
+				benchmark.getNanosPerOp(), benchmark.getNanosError(), benchmark.getBytesPerOp(), benchmark.getGcCount()));
+		}
+	}
+}
@@ -0,0 +1,111 @@
+/*
+ * Tic Tac Toe A simple machine learning simulator.
+ *
+ * Class: MoveRulesCheck
+ *
+ * Checks that the rule lists below, compiled by MoveRules, give exactly the same move probabilities, listed in the
+ * same order, as the scripted agents they describe, in every reachable state where the game is in progress. Opponents 2 to 4 only
+ * follow their rules when playing 'X', so in states where 'O' is to move they are checked against "random". Then
+ * moves are drawn from each RuleAgent, and the share of each move is checked against its probability.
+ *
+ * Usage: java MoveRulesCheck [DrawsPerState]
+ *
+ * Author: 	Toby Waite
+ * Contact: toby.waite@gmail.com
+ * Updated: November 16th, 2010.
+ */
+
+import java.util.ArrayList;
+import java.util.Random;
+
+public class MoveRulesCheck {
+
+	private static final String[] Rules = {"random", "block 0.5 > random", "win 0.8 > random",
+										   "win 0.8 > block 0.8 > random", "win 0.8 > fork 0.8 > random",
+										   "win 0.8 > block 0.8 > fork 0.8 > blockfork 0.8 > random"};
+	private static final int[] Opponents = {Consts.OpponentRandom, Consts.OpponentDefensive,
+											Consts.OpponentAggressive, Consts.OpponentBalanced,
+											Consts.OpponentForking, Consts.OpponentForkAware};
+
+	// a drawn move's share may differ from its probability by this many standard deviations.
+	private static final double Tolerance = 5.0;
+
+	public static void main(String[] args) throws ParameterException {
+		int draws = (args.length > 0) ? Integer.parseInt(args[0]) : 2000;
+		StateGraph graph = StateGraph.get();
+		MoveRules random = MoveRules.parse("random");
+		int checked = 0, mismatches = 0;
+		for(int n = 0; n < Rules.length; n++){
+			Agent agent = TicTacToe.createOpponent(Opponents[n]);
+			MoveRules rules = MoveRules.parse(Rules[n]);
+			boolean xOnly = Opponents[n] == Consts.OpponentDefensive || Opponents[n] == Consts.OpponentAggressive ||
+							Opponents[n] == Consts.OpponentBalanced;
+			for(int i = 0; i < graph.size(); i++){
+				if(graph.isTerminal(i))
+					continue;
+				int key = graph.getKey(i);
+				Game game = new Game(agent, agent, StateKey.decode(key));
+				MoveRules expected = (xOnly && graph.getSideToMove(i) == Consts.MoveO) ? random : rules;
+				checked++;
+				if(!sameSuccessors(agent.getSuccessorStates(game), expected.getSuccessorStates(game), game)){
+					System.out.println("\"" + expected + "\" differs from opponent " + Opponents[n] + " in state " + key);
+					mismatches++;
+				}
+			}
+			mismatches += checkDraws(rules, draws);
+		}
+		System.out.println(checked + " states checked, " + mismatches + " mismatches");
+		System.exit((mismatches == 0) ? 0 : 1);
+	}
+
+	// true if two lists of successors of a game have the same moves, in the same order, with exactly the same
+	//  probabilities. A learner sums the values of the successors in list order, so the order matters as well.
+	private static boolean sameSuccessors(ArrayList<TransitionPair> a, ArrayList<TransitionPair> b, Game game){
+		if(a.size() != b.size())
+			return false;
+		for(int n = 0; n < a.size(); n++){
+			if(movedSquare(game, a.get(n).game) != movedSquare(game, b.get(n).game) ||
+			   a.get(n).probability.doubleValue() != b.get(n).probability.doubleValue())
+				return false;
+		}
+		return true;
+	}
+
+	// the square moved to between a game and one of its successors.
+	private static int movedSquare(Game game, Game next){
+		for(int square = 0; square < Consts.NumSquares; square++){
+			if(next.getSquare(square) != game.getSquare(square))
+				return square;
+		}
+		return Consts.NoMove;
+	}
+
+	// Draw moves from a RuleAgent in a sample of states, and check each move's share against its probability.
+	private static int checkDraws(MoveRules rules, int draws){
+		StateGraph graph = StateGraph.get();
+		RuleAgent agent = new RuleAgent(rules);
+		Agent.setSeed(17);
+		Random pick = new Random(29);
+		int mismatches = 0;
+		for(int sample = 0; sample < 200; sample++){
+			int i = pick.nextInt(graph.size());
+			if(graph.isTerminal(i))
+				continue;
+			int key = graph.getKey(i);
+			Game game = new Game(agent, agent, StateKey.decode(key));
+			int[] counts = new int[Consts.NumSquares];
+			for(int d = 0; d < draws; d++)
+				counts[agent.pickMove(game)]++;
+			for(int square = 0; square < Consts.NumSquares; square++){
+				double p = rules.getProbability(key, square);
+				double error = Math.sqrt(Math.max(p * (1 - p), 1e-9) / draws);
+				if(Math.abs(counts[square] / (double)draws - p) > Tolerance * error || (p == 0.0 && counts[square] > 0)){
+					System.out.println("\"" + rules + "\" draws square " + square + " in state " + key + " " +
+									   counts[square] + " times in " + draws + ", with probability " + p);
+					mismatches++;
+				}
+			}
+		}
+		return mismatches;
+	}
+}
@@ -0,0 +1,94 @@
+/*
+ * Tic Tac Toe A simple machine learning simulator.
+ *
+ * Class: MoveSchedulerBenchmark
+ *
+ * Plays many games at once through a MoveScheduler with a small thread pool. The second seat is taken by an agent
+ * standing in for a remote player: it makes the balanced opponent's move, but only after a random delay, and waits
+ * without holding a thread (see Agent.pickMoveAsync). Some delays are longer than the move deadline, so some moves
+ * are replaced by the fallback. The benchmark is run with each fallback, and reports wall time, games per second,
+ * and how many moves missed their deadline, next to the time the same games would take played one at a time.
+ *
+ * Before that, a match between in-process agents is played with a generous deadline, to check that the scheduler
+ * plays every move the agents pick (no misses, and results in line with a synchronous match).
+ *
+ * Usage: java MoveSchedulerBenchmark [Games] [Threads] [DeadlineMillis] [MaxDelayMillis] [GamesInFlight]
+ *
+ * Author: 	Toby Waite
+ * Contact: toby.waite@gmail.com
+ * Updated: November 16th, 2010.
+ */
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class MoveSchedulerBenchmark {
+
+	// the balanced opponent, answering after a random delay of up to maxDelayMillis.
+	private static class DelayedAgent extends BalancedAgent {
+		private int maxDelayMillis;
+		final AtomicLong totalDelayMillis = new AtomicLong();
+
+		DelayedAgent(int maxDelay){
+			maxDelayMillis = maxDelay;
+		}
+
+		public CompletableFuture<Integer> pickMoveAsync(Game game, Executor executor){
+			int delay = 1 + ThreadLocalRandom.current().nextInt(maxDelayMillis);
+			totalDelayMillis.addAndGet(delay);
+			int move = pickMove(game);
+			Executor later = CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS, executor);
+			return CompletableFuture.supplyAsync(() -> move, later);
+		}
+	}
+
+	public static void main(String[] args) {
+		int games = (args.length > 0) ? Integer.parseInt(args[0]) : 10000;
+		int threads = (args.length > 1) ? Integer.parseInt(args[1]) : 2;
+		int deadline = (args.length > 2) ? Integer.parseInt(args[2]) : 20;
+		int maxDelay = (args.length > 3) ? Integer.parseInt(args[3]) : 25;
+		int inFlight = (args.length > 4) ? Integer.parseInt(args[4]) : 1000;
+
+		ValueItrAgent learner = new ValueItrAgent();
+		learner.initialize(new BalancedAgent());
+		FrozenAgent frozen = learner.freeze();
+
+		// in-process agents, well within a generous deadline.
+		MoveScheduler scheduler = new MoveScheduler(threads, 10000, Consts.FallbackForfeit);
+		Counters.reset();
+		int[] async = scheduler.playMatch(frozen, new BalancedAgent(), games, inFlight).join();
+		int[] sync = new int[3];
+		for(int i = 0; i < games; i++){
+			switch(new Game(frozen, new BalancedAgent()).playGame()){
+				case Consts.GameWon:	sync[0]++; break;
+				case Consts.GameTied:	sync[1]++; break;
+				case Consts.GameLost:	sync[2]++; break;
+			}
+		}
+		scheduler.close();
+		System.out.println(String.format("In-process: scheduled won %d, tied %d, lost %d; synchronous won %d, tied %d, " +
+										 "lost %d; %d missed moves", async[0], async[1], async[2], sync[0], sync[1],
+										 sync[2], Counters.MissedMoves.sum()));
+
+		// a delayed second seat, with each fallback.
+		String[] fallbackNames = {"random", "forfeit"};
+		int[] fallbacks = {Consts.FallbackRandom, Consts.FallbackForfeit};
+		for(int f = 0; f < fallbacks.length; f++){
+			scheduler = new MoveScheduler(threads, deadline, fallbacks[f]);
+			DelayedAgent remote = new DelayedAgent(maxDelay);
+			Counters.reset();
+			long start = System.nanoTime();
+			int[] tally = scheduler.playMatch(frozen, remote, games, inFlight).join();
+			double seconds = (System.nanoTime() - start) / 1e9;
+			scheduler.close();
+			System.out.println(String.format("Fallback %-7s: %d games (%d in flight) on %d threads in %.2fs (%.0f " +
+											 "games/s, %.0fs one at a time), won %d, tied %d, lost %d, %d missed moves, " +
+											 "%d forfeits", fallbackNames[f], games, inFlight, threads, seconds, games / seconds,
+											 remote.totalDelayMillis.get() / 1e3, tally[0], tally[1], tally[2],
+											 Counters.MissedMoves.sum(), Counters.Forfeits.sum()));
+		}
+	}
+}
@@ -0,0 +1,213 @@
+/*
+ * Tic Tac Toe A simple machine learning simulator.
+ *
+ * Class: Perft
+ *
+ * Enumerates the complete game tree from the empty board, using nothing but Game's own move generation
+ * (possibleMoves, simulateMove and evaluateGameState), and counts every position visited and every finished game by
+ * its result and its length. The counts are checked against the known totals for tic tac toe, so this is both a
+ * check that Game still plays by the rules and a measure of how fast it does so. The tree is walked in three ways:
+ *  - serial:        a plain depth first walk on one thread.
+ *  - parallel:      the same walk split into fork/join tasks, one per position in the first SplitDepth moves.
+ *  - transposition: a depth first walk that counts the subtree below each board once and reuses it whenever the
+ *                   board is reached again by other move orders. Every board is expanded only once (5478 of
+ *                   them), while the totals are still those of the whole tree.
+ * Each way is timed over a number of runs, after warming up, and reported in tree nodes per second.
+ *
+ * Usage: java Perft [serial|parallel|transposition|all] [Runs] [Threads]
+ *
+ * Author: 	Toby Waite
+ * Contact: toby.waite@gmail.com
+ * Updated: November 16th, 2010.
+ */
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+public class Perft {
+
+	// known totals: positions in the tree (counting the empty board), games, and games by result and length.
+	private static final long ExpectedNodes = 549946;
+	private static final long ExpectedGames = 255168;
+	private static final long ExpectedXWins = 131184;
+	private static final long ExpectedOWins = 77904;
+	private static final long ExpectedDraws = 46080;
+	private static final long[] ExpectedGamesByLength = {0, 0, 0, 0, 0, 1440, 5328, 47952, 72576, 127872};
+
+	// result indices in Counts.games.
+	private static final int XWin = 0;
+	private static final int OWin = 1;
+	private static final int Draw = 2;
+
+	// the parallel walk forks a task for every position up to this many moves in.
+	private static final int SplitDepth = 2;
+	private static final int WarmupRuns = 5;
+
+	// the counts for a subtree: the positions in it, and the games it contains, by result and by length.
+	private static class Counts {
+		long nodes;
+		final long[][] games = new long[3][Consts.NumSquares + 1];
+
+		void add(Counts other){
+			nodes += other.nodes;
+			for(int result = 0; result < games.length; result++){
+				for(int length = 0; length < games[result].length; length++)
+					games[result][length] += other.games[result][length];
+			}
+		}
+
+		long total(int result){
+			long total = 0;
+			for(long count : games[result])
+				total += count;
+			return total;
+		}
+
+		long byLength(int length){
+			return games[XWin][length] + games[OWin][length] + games[Draw][length];
+		}
+	}
+
+	public static void main(String[] args) {
+		String mode = (args.length > 0) ? args[0] : "all";
+		int runs = (args.length > 1) ? Math.max(1, Integer.parseInt(args[1])) : 20;
+		int threads = (args.length > 2) ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+		ForkJoinPool pool = new ForkJoinPool(threads);
+
+		ArrayList<String> modes = new ArrayList<String>();
+		if(mode.equals("all")){
+			modes.add("serial");
+			modes.add("parallel");
+			modes.add("transposition");
+		}
+		else if(mode.equals("serial") || mode.equals("parallel") || mode.equals("transposition"))
+			modes.add(mode);
+		else{
+			System.out.println("Usage: java Perft [serial|parallel|transposition|all] [Runs] [Threads]");
+			System.exit(1);
+		}
+
+		int failures = 0;
+		for(String m : modes){
+			Counts counts = null;
+			for(int i = 0; i < WarmupRuns; i++)
+				counts = walk(m, pool);
+			long start = System.nanoTime();
+			for(int i = 0; i < runs; i++)
+				counts = walk(m, pool);
+			double seconds = (System.nanoTime() - start) / 1e9 / runs;
+			System.out.println(String.format("%-13s %8.2fms per walk, %6.1fM nodes/s%s", m, seconds * 1e3,
+											 counts.nodes / seconds / 1e6,
+											 m.equals("parallel") ? " (" + threads + " threads)" : ""));
+			failures += check(m, counts);
+		}
+		pool.shutdown();
+		System.exit((failures == 0) ? 0 : 1);
+	}
+
+	private static Counts walk(String mode, ForkJoinPool pool){
+		Game root = new Game(new NaiveAgent(), new NaiveAgent());
+		if(mode.equals("parallel"))
+			return pool.invoke(new WalkTask(root, 0));
+		if(mode.equals("transposition"))
+			return walkTransposed(root, new Counts[StateKey.NumKeys]);
+		Counts counts = new Counts();
+		walk(root, counts);
+		return counts;
+	}
+
+	// Count a position and everything below it. A finished game counts as a game of its length.
+	private static void walk(Game game, Counts counts){
+		counts.nodes++;
+		int state = game.evaluateGameState();
+		if(state != Consts.GameInProgress){
+			counts.games[resultIndex(state)][game.getTurnsElapsed()]++;
+			return;
+		}
+		for(int move : game.possibleMoves())
+			walk(game.simulateMove(move), counts);
+	}
+
+	// The serial walk, forking a task for each move until SplitDepth moves in.
+	private static class WalkTask extends RecursiveTask<Counts> {
+		private static final long serialVersionUID = 1L;
+		private final Game game;
+		private final int depth;
+
+		WalkTask(Game position, int positionDepth){
+			game = position;
+			depth = positionDepth;
+		}
+
+		protected Counts compute(){
+			Counts counts = new Counts();
+			if(depth >= SplitDepth || game.evaluateGameState() != Consts.GameInProgress){
+				walk(game, counts);
+				return counts;
+			}
+			counts.nodes++;
+			ArrayList<WalkTask> tasks = new ArrayList<WalkTask>();
+			for(int move : game.possibleMoves()){
+				WalkTask task = new WalkTask(game.simulateMove(move), depth + 1);
+				task.fork();
+				tasks.add(task);
+			}
+			for(WalkTask task : tasks)
+				counts.add(task.join());
+			return counts;
+		}
+	}
+
+	// Count a position and everything below it, reusing the counts of any board whose subtree has been counted
+	//  already. A board's subtree only depends on the board, so it is the same whichever order its moves came in.
+	private static Counts walkTransposed(Game game, Counts[] table){
+		int key = game.getStateKey();
+		if(table[key] != null)
+			return table[key];
+		Counts counts = new Counts();
+		counts.nodes++;
+		int state = game.evaluateGameState();
+		if(state != Consts.GameInProgress)
+			counts.games[resultIndex(state)][game.getTurnsElapsed()]++;
+		else{
+			for(int move : game.possibleMoves())
+				counts.add(walkTransposed(game.simulateMove(move), table));
+		}
+		table[key] = counts;
+		return counts;
+	}
+
+	private static int resultIndex(int state){
+		switch(state){
+			case Consts.GameWon:	return XWin;
+			case Consts.GameLost:	return OWin;
+			case Consts.GameTied:	return Draw;
+			default: throw new IllegalStateException("Game state " + state + " isn't the end of a game");
+		}
+	}
+
+	// Compare a walk's counts with the known totals, printing any that differ. Returns the number that differ.
+	private static int check(String mode, Counts counts){
+		int failures = 0;
+		failures += check(mode, "nodes", counts.nodes, ExpectedNodes);
+		failures += check(mode, "games", counts.total(XWin) + counts.total(OWin) + counts.total(Draw), ExpectedGames);
+		failures += check(mode, "X wins", counts.total(XWin), ExpectedXWins);
+		failures += check(mode, "O wins", counts.total(OWin), ExpectedOWins);
+		failures += check(mode, "draws", counts.total(Draw), ExpectedDraws);
+		for(int length = 0; length <= Consts.NumSquares; length++)
+			failures += check(mode, "games of " + length + " moves", counts.byLength(length), ExpectedGamesByLength[length]);
+		if(failures == 0)
+			System.out.println(String.format("%-13s %d nodes, %d games: %d X wins, %d O wins, %d draws, all correct", mode,
+											 counts.nodes, counts.total(XWin) + counts.total(OWin) + counts.total(Draw), counts.total(XWin), counts.total(OWin),
+											 counts.total(Draw)));
+		return failures;
+	}
+
+	private static int check(String mode, String what, long count, long expected){
+		if(count == expected)
+			return 0;
+		System.out.println(mode + ": " + count + " " + what + ", expected " + expected);
+		return 1;
+	}
+}
@@ -0,0 +1,150 @@
+/*
+ * Tic Tac Toe A simple machine learning simulator.
+ *
+ * Class: PositionRankBenchmark
+ *
+ * Checks PositionRank and compares its speed with the learning agents' ternary state keys.
+ *
+ * The check ranks every legal board (every ternary key whose piece counts are legal) and confirms that the ranks
+ * are exactly 0 to size() - 1 with none repeated, that unranking gives back the same board, and that a Game built
+ * from the unranked board has the same board and the same number of turns elapsed. It then confirms that every
+ * reachable state in the StateGraph is among them. The benchmarks time ranking and unranking a pool of positions
+ * against ValueItrAgent.genStateKey and gameFromKey, with the MicroBenchmark harness.
+ *
+ * Usage: java PositionRankBenchmark [NameFilter]
+ *
+ * Author: 	Toby Waite
+ * Contact: toby.waite@gmail.com
+ * Updated: November 16th, 2010.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class PositionRankBenchmark {
+
+	// number of positions in the pool. Must be a power of two.
+	private static final int PoolSize = 1024;
+
+	public static void main(String[] args) {
+		if(!check()){
+			System.out.println("PositionRank check FAILED");
+			System.exit(1);
+		}
+		MicroBenchmark.runAll(createBenchmarks(), (args.length > 0) ? args[0] : null);
+	}
+
+	// Round trip every legal board through PositionRank, returning true if everything matches.
+	private static boolean check(){
+		boolean[] seen = new boolean[PositionRank.size()];
+		int legal = 0;
+		NaiveAgent first = new NaiveAgent(), second = new NaiveAgent();
+		for(int key = 0; key < StateKey.NumKeys; key++){
+			int x = StateKey.xMask(key), o = StateKey.oMask(key);
+			if(!PositionRank.isLegal(Integer.bitCount(x), Integer.bitCount(o)))
+				continue;
+			legal++;
+			int[] board = StateKey.decode(key);
+			int rank = PositionRank.rank(board);
+			if(rank < 0 || rank >= seen.length || seen[rank]){
+				System.out.println("Board " + key + " has rank " + rank + ", which is out of range or repeated");
+				return false;
+			}
+			seen[rank] = true;
+			if(PositionRank.rank(x, o) != rank || PositionRank.unrank(rank) != (x | (o << Consts.NumSquares))){
+				System.out.println("Board " + key + " doesn't survive ranking by masks");
+				return false;
+			}
+			Game original = new Game(first, second, board);
+			Game unranked = new Game(first, second, PositionRank.unrankBoard(rank));
+			if(!Arrays.equals(original.getBoard(), unranked.getBoard()) ||
+			   original.getTurnsElapsed() != unranked.getTurnsElapsed()){
+				System.out.println("Board " + key + " doesn't survive ranking as a Game");
+				return false;
+			}
+		}
+		if(legal != PositionRank.size()){
+			System.out.println(legal + " legal boards, but PositionRank.size() is " + PositionRank.size());
+			return false;
+		}
+		StateGraph graph = StateGraph.get();
+		for(int i = 0; i < graph.size(); i++){
+			int key = graph.getKey(i);
+			if(!seen[PositionRank.rank(StateKey.xMask(key), StateKey.oMask(key))]){
+				System.out.println("Reachable state " + key + " has no rank");
+				return false;
+			}
+		}
+		System.out.println("PositionRank check passed: " + legal + " legal positions ranked 0 to " + (legal - 1) +
+						   ", including all " + graph.size() + " reachable states (state keys span " +
+						   StateKey.NumKeys + ")");
+		return true;
+	}
+
+	public static ArrayList<MicroBenchmark> createBenchmarks(){
+		// a pool of reachable states, spread across the state graph.
+		StateGraph graph = StateGraph.get();
+		final int[] keys = new int[PoolSize];
+		final int[][] boards = new int[PoolSize][];
+		final int[] xMasks = new int[PoolSize], oMasks = new int[PoolSize], ranks = new int[PoolSize];
+		for(int i = 0; i < PoolSize; i++){
+			keys[i] = graph.getKey((int)((long)i * graph.size() / PoolSize));
+			boards[i] = StateKey.decode(keys[i]);
+			xMasks[i] = StateKey.xMask(keys[i]);
+			oMasks[i] = StateKey.oMask(keys[i]);
+			ranks[i] = PositionRank.rank(xMasks[i], oMasks[i]);
+		}
+		final ValueItrAgent learner = new ValueItrAgent();
+
+		ArrayList<MicroBenchmark> benchmarks = new ArrayList<MicroBenchmark>();
+		benchmarks.add(new MicroBenchmark("ValueItrAgent.genStateKey"){
+			public long run(int ops){
+				long result = 0;
+				for(int i = 0; i < ops; i++)
+					result += learner.genStateKey(boards[i & (PoolSize-1)]);
+				return result;
+			}
+		});
+		benchmarks.add(new MicroBenchmark("ValueItrAgent.gameFromKey"){
+			public long run(int ops){
+				long result = 0;
+				for(int i = 0; i < ops; i++)
+					result += learner.gameFromKey(keys[i & (PoolSize-1)]).getTurnsElapsed();
+				return result;
+			}
+		});
+		benchmarks.add(new MicroBenchmark("PositionRank.rank(board)"){
+			public long run(int ops){
+				long result = 0;
+				for(int i = 0; i < ops; i++)
+					result += PositionRank.rank(boards[i & (PoolSize-1)]);
+				return result;
+			}
+		});
+		benchmarks.add(new MicroBenchmark("PositionRank.rank(masks)"){
+			public long run(int ops){
+				long result = 0;
+				for(int i = 0; i < ops; i++)
+					result += PositionRank.rank(xMasks[i & (PoolSize-1)], oMasks[i & (PoolSize-1)]);
+				return result;
+			}
+		});
+		benchmarks.add(new MicroBenchmark("PositionRank.unrank"){
+			public long run(int ops){
+				long result = 0;
+				for(int i = 0; i < ops; i++)
+					result += PositionRank.unrank(ranks[i & (PoolSize-1)]);
+				return result;
+			}
+		});
+		benchmarks.add(new MicroBenchmark("PositionRank.unrankBoard"){
+			public long run(int ops){
+				long result = 0;
+				for(int i = 0; i < ops; i++)
+					result += PositionRank.unrankBoard(ranks[i & (PoolSize-1)])[i % Consts.NumSquares];
+				return result;
+			}
+		});
+		return benchmarks;
+	}
+}
@@ -0,0 +1,111 @@
+/*
+ * Tic Tac Toe A simple machine learning simulator.
+ *
+ * Class: ThreatTablesCheck
+ *
+ * Checks ThreatTables against scans of the board that use nothing but Game, in every reachable state where the
+ * game is in progress:
+ *  - the scripted agents' pickDefensiveMove and pickAggressiveMove must pick the same square as the scans they
+ *    replaced, which simulated the other side's piece (or this side's) on every square and looked for a lost (or
+ *    won) game.
+ *  - winning, blocking and fork squares must match a scan that simulates each move and counts the winning squares
+ *    it leaves, for both sides.
+ * The bit mask versions used by BatchSimulator are checked against the tables as well. The exit status is 1 if
+ * anything didn't match.
+ *
+ * Usage: java ThreatTablesCheck
+ *
+ * Author: 	Toby Waite
+ * Contact: toby.waite@gmail.com
+ * Updated: November 16th, 2010.
+ */
+
+public class ThreatTablesCheck {
+
+	public static void main(String[] args) {
+		StateGraph graph = StateGraph.get();
+		BalancedAgent agent = new BalancedAgent();
+		int checked = 0, mismatches = 0;
+		for(int i = 0; i < graph.size(); i++){
+			if(graph.isTerminal(i))
+				continue;
+			int key = graph.getKey(i);
+			Game game = new Game(agent, agent, StateKey.decode(key));
+			checked++;
+
+			if(agent.pickDefensiveMove(game) != scanDefensiveMove(game))
+				mismatches += report("pickDefensiveMove", key);
+			if(agent.pickAggressiveMove(game) != scanAggressiveMove(game))
+				mismatches += report("pickAggressiveMove", key);
+
+			int x = StateKey.xMask(key), o = StateKey.oMask(key), empty = BitBoard.Full & ~(x | o);
+			for(int side = Consts.MoveX; side <= Consts.MoveO; side++){
+				int other = (side == Consts.MoveX) ? Consts.MoveO : Consts.MoveX;
+				int own = (side == Consts.MoveX) ? x : o;
+				if(ThreatTables.winningSquares(key, side) != scanWinningSquares(game, side))
+					mismatches += report("winningSquares", key);
+				if(ThreatTables.blockingSquares(key, side) != scanWinningSquares(game, other))
+					mismatches += report("blockingSquares", key);
+				if(ThreatTables.forkSquares(key, side) != scanForkSquares(game, side))
+					mismatches += report("forkSquares", key);
+				if(ThreatTables.forkBlockingSquares(key, side) != scanForkSquares(game, other))
+					mismatches += report("forkBlockingSquares", key);
+				if(BitBoard.forkingSquares(own, empty) != ThreatTables.forkSquares(key, side))
+					mismatches += report("BitBoard.forkingSquares", key);
+			}
+		}
+		System.out.println(checked + " states checked, " + mismatches + " mismatches");
+		System.exit((mismatches == 0) ? 0 : 1);
+	}
+
+	private static int report(String what, int key){
+		System.out.println(what + " differs in state " + key);
+		return 1;
+	}
+
+	// the scan pickDefensiveMove used to do: place the other side's piece on each square, and look for a lost game.
+	private static int scanDefensiveMove(Game game){
+		int moveType = (game.getNextMove() == Consts.MoveX) ? Consts.MoveO : Consts.MoveX;
+		for(int move = 0; move < Consts.NumSquares; move++){
+			if(game.simulateMove(move, moveType).evaluateGameState() == Consts.GameLost)
+				return move;
+		}
+		return Consts.NoMove;
+	}
+
+	// the scan pickAggressiveMove used to do: place this side's piece on each square, and look for a won game.
+	private static int scanAggressiveMove(Game game){
+		int moveType = game.getNextMove();
+		for(int move = 0; move < Consts.NumSquares; move++){
+			if(game.simulateMove(move, moveType).evaluateGameState() == Consts.GameWon)
+				return move;
+		}
+		return Consts.NoMove;
+	}
+
+	// the empty squares where a piece of the given type completes a line for that side.
+	private static int scanWinningSquares(Game game, int moveType){
+		int result = (moveType == Consts.MoveX) ? Consts.GameWon : Consts.GameLost;
+		int squares = 0;
+		for(int move = 0; move < Consts.NumSquares; move++){
+			if(game.simulateMove(move, moveType).evaluateGameState() == result)
+				squares |= 1 << move;
+		}
+		return squares;
+	}
+
+	// the empty squares where a piece of the given type doesn't win, but leaves that side two or more winning
+	//  squares.
+	private static int scanForkSquares(Game game, int moveType){
+		int squares = 0;
+		for(int move = 0; move < Consts.NumSquares; move++){
+			if(game.getSquare(move) != Consts.MoveEmpty)
+				continue;
+			Game next = game.simulateMove(move, moveType);
+			if(next.evaluateGameState() == Consts.GameInProgress &&
+			   Integer.bitCount(scanWinningSquares(next, moveType)) >= 2)
+				squares |= 1 << move;
+		}
+		return squares;
+	}
+}
@@ -0,0 +1,170 @@
+/*
+ * Tic Tac Toe A simple machine learning simulator.
+ *
+ * Class: TrainingBenchmark
+ *
+ * An end to end benchmark of training and match play. For each learning agent (ValueItrAgent and PolicyItrAgent)
+ * and each of the four scripted opponents, it times initialize, broken down into value table setup, the number
+ * of sweeps over the value table and the time per sweep (and, for policy iteration, the number of policy
+ * improvement rounds). It then plays a match between the trained agent and the opponent and measures games per
+ * second. The time taken to build the shared StateGraph is reported as well, though it is only built once, before
+ * the first warmup run.
+ *
+ * Each pairing is trained a number of times without being measured first, so that the JIT compiler has warmed up,
+ * and the match is preceded by warmup games. Timings are reported as the mean and minimum over the measured runs.
+ * Results are printed and written to a JSON file, so that they can be compared from release to release.
+ *
+ * Usage: java TrainingBenchmark [WarmupRuns] [MeasuredRuns] [MatchGames] [OutputFile]
+ *
+ * Author: 	Toby Waite
+ * Contact: toby.waite@gmail.com
+ * Updated: November 16th, 2010.
+ */
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Locale;
+
+public class TrainingBenchmark {
+
+	private static final String[] AgentNames = {"ValItr", "PolItr"};
+	private static final int[] AgentTypes = {Consts.AgentValItr, Consts.AgentPolItr};
+	private static final String[] OpponentNames = {"Random", "Defensive", "Aggressive", "Balanced"};
+	private static final int[] OpponentTypes = {Consts.OpponentRandom, Consts.OpponentDefensive,
+												Consts.OpponentAggressive, Consts.OpponentBalanced};
+
+	private int warmupRuns = 2;
+	private int measuredRuns = 5;
+	private int matchGames = 100000;
+
+	public static void main(String[] args) throws Exception {
+		TrainingBenchmark benchmark = new TrainingBenchmark();
+		if(args.length > 0)
+			benchmark.warmupRuns = Integer.parseInt(args[0]);
+		if(args.length > 1)
+			benchmark.measuredRuns = Math.max(1, Integer.parseInt(args[1]));
+		if(args.length > 2)
+			benchmark.matchGames = Integer.parseInt(args[2]);
+		String outputFile = (args.length > 3) ? args[3] : "training-benchmark.json";
+
+		ArrayList<String> results = new ArrayList<String>();
+		for(int a = 0; a < AgentTypes.length; a++){
+			for(int o = 0; o < OpponentTypes.length; o++)
+				results.add(benchmark.measure(a, o));
+		}
+		benchmark.writeJson(outputFile, results);
+		System.out.println("Results written to " + outputFile);
+	}
+
+	// train and play one pairing, returning its results as a JSON object.
+	private String measure(int agent, int opp) throws ParameterException {
+		for(int i = 0; i < warmupRuns; i++)
+			train(agent, opp);
+
+		long[] total = new long[measuredRuns];
+		long[] setup = new long[measuredRuns];
+		long[] perSweep = new long[measuredRuns];
+		TrainingStats stats = null;
+		Agent trained = null;
+		for(int i = 0; i < measuredRuns; i++){
+			trained = train(agent, opp);
+			stats = getStats(trained);
+			total[i] = stats.totalNanos;
+			setup[i] = stats.setupNanos;
+			perSweep[i] = (long)stats.nanosPerSweep();
+		}
+
+		// time a match with the last trained agent, after warming up the game loop.
+		Agent opponent = TicTacToe.createOpponent(OpponentTypes[opp]);
+		playGames(trained, opponent, matchGames / 10);
+		long start = System.nanoTime();
+		int[] tally = playGames(trained, opponent, matchGames);
+		double gamesPerSecond = matchGames / ((System.nanoTime() - start) / 1e9);
+
+		System.out.println(String.format("%-6s vs %-10s initialize %8.1fms (setup %6.1fms, %3d sweeps at %6.2fms%s), " +
+										 "%9.0f games/s", AgentNames[agent], OpponentNames[opp], mean(total) / 1e6,
+										 mean(setup) / 1e6, stats.sweeps, mean(perSweep) / 1e6,
+										 (stats.policyRounds > 0) ? ", " + stats.policyRounds + " rounds" : "",
+										 gamesPerSecond));
+
+		return "{\"agent\": \"" + AgentNames[agent] + "\", \"opponent\": \"" + OpponentNames[opp] + "\", " +
+			"\"states\": " + stats.states + ", " +
+			"\"expansionMs\": " + String.format(Locale.ROOT, "%.3f", stats.expansionNanos / 1e6) + ", " +
+			"\"sweeps\": " + stats.sweeps + ", " +
+			"\"policyRounds\": " + stats.policyRounds + ", " +
+			"\"initializeMs\": " + timing(total) + ", " +
+			"\"setupMs\": " + timing(setup) + ", " +
+			"\"sweepMs\": " + timing(perSweep) + ", " +
+			"\"match\": {\"games\": " + matchGames + ", \"won\": " + tally[0] + ", \"tied\": " + tally[1] +
+			", \"lost\": " + tally[2] + ", \"gamesPerSecond\": " + String.format(Locale.ROOT, "%.1f", gamesPerSecond) + "}}";
+	}
+
+	// create a learner and an opponent and train the learner against it.
+	private Agent train(int agent, int opp) throws ParameterException {
+		Agent learner = TicTacToe.createAgent(AgentTypes[agent]);
+		Agent opponent = TicTacToe.createOpponent(OpponentTypes[opp]);
+		opponent.initialize(learner);
+		learner.initialize(opponent);
+		return learner;
+	}
+
+	private static TrainingStats getStats(Agent learner){
+		if(learner instanceof ValueItrAgent)
+			return ((ValueItrAgent)learner).getTrainingStats();
+		return ((PolicyItrAgent)learner).getTrainingStats();
+	}
+
+	// play a number of games, returning {wins, ties, losses}.
+	private static int[] playGames(Agent ourAgent, Agent opponent, int numGames){
+		int[] tally = new int[3];
+		for(int i = 0; i < numGames; i++){
+			switch(new Game(ourAgent, opponent).playGame()){
+				case Consts.GameWon:	tally[0]++; break;
+				case Consts.GameTied:	tally[1]++; break;
+				case Consts.GameLost:	tally[2]++; break;
+			}
+		}
+		return tally;
+	}
+
+	private static double mean(long[] values){
+		double sum = 0.0;
+		for(long value : values)
+			sum += value;
+		return sum / values.length;
+	}
+
+	private static long min(long[] values){
+		long result = Long.MAX_VALUE;
+		for(long value : values)
+			result = Math.min(result, value);
+		return result;
+	}
+
+	// a JSON object with the mean and minimum of a set of timings, in milliseconds.
+	private static String timing(long[] nanos){
+		return "{\"mean\": " + String.format(Locale.ROOT, "%.3f", mean(nanos) / 1e6) + ", \"min\": " +
+			String.format(Locale.ROOT, "%.3f", min(nanos) / 1e6) + "}";
+	}
+
+	private void writeJson(String fileName, ArrayList<String> results) throws IOException {
+		PrintWriter out = new PrintWriter(new FileWriter(fileName));
+		try{
+			out.println("{");
+			out.println("  \"javaVersion\": \"" + System.getProperty("java.version") + "\",");
+			out.println("  \"timestamp\": " + System.currentTimeMillis() + ",");
+			out.println("  \"warmupRuns\": " + warmupRuns + ",");
+			out.println("  \"measuredRuns\": " + measuredRuns + ",");
+			out.println("  \"results\": [");
+			for(int i = 0; i < results.size(); i++)
+				out.println("    " + results.get(i) + ((i < results.size() - 1) ? "," : ""));
+			out.println("  ]");
+			out.println("}");
+		}
+		finally{
+			out.close();
+		}
+	}
+}
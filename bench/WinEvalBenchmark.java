@@ -0,0 +1,73 @@
+/*
+ * Tic Tac Toe A simple machine learning simulator.
+ *
+ * Class: WinEvalBenchmark
+ *
+ * Compares the scalar and vector WinEvaluators. Both are first checked against Game.evaluateGameState over all 3^9
+ * board encodings, then each is timed evaluating those encodings repeatedly, and the throughput of each is
+ * reported in boards per second.
+ *
+ * Usage: java --add-modules jdk.incubator.vector WinEvalBenchmark [Rounds]
+ *  Without --add-modules, only the scalar evaluator is timed.
+ *
+ * Author: 	Toby Waite
+ * Contact: toby.waite@gmail.com
+ * Updated: November 16th, 2010.
+ */
+
+public class WinEvalBenchmark {
+
+	private static final int WarmupRounds = 2000;
+	private static final int DefaultRounds = 10000;
+
+	public static void main(String[] args) {
+		int rounds = (args.length > 0) ? Integer.parseInt(args[0]) : DefaultRounds;
+
+		// build the masks for every encoding, and the state Game reports for each one.
+		int numKeys = StateKey.NumKeys;
+		int[] xMasks = new int[numKeys];
+		int[] oMasks = new int[numKeys];
+		int[] expected = new int[numKeys];
+		for(int key = 0; key < numKeys; key++){
+			int[] board = new int[Consts.NumSquares];
+			int remainingKey = key;
+			for(int i = 0; i < board.length; i++){
+				board[i] = remainingKey % 3;
+				remainingKey /= 3;
+			}
+			xMasks[key] = BitBoard.xMask(board);
+			oMasks[key] = BitBoard.oMask(board);
+			expected[key] = new Game(null, null, board).evaluateGameState();
+		}
+
+		WinEvaluator[] evaluators = {new ScalarWinEvaluator(), WinEvaluator.create()};
+		if(evaluators[1] instanceof ScalarWinEvaluator){
+			System.out.println("Vector API not available; run with --add-modules jdk.incubator.vector to compare.");
+			evaluators = new WinEvaluator[] {evaluators[0]};
+		}
+
+		int[] states = new int[numKeys];
+		for(WinEvaluator evaluator : evaluators){
+			// check correctness first.
+			evaluator.evaluate(xMasks, oMasks, numKeys, states);
+			for(int key = 0; key < numKeys; key++){
+				if(states[key] != expected[key]){
+					System.out.println(evaluator.getName() + " disagrees with Game for key " + key + ": " +
+									   states[key] + " != " + expected[key]);
+					System.exit(1);
+				}
+			}
+			// time it.
+			for(int i = 0; i < WarmupRounds; i++)
+				evaluator.evaluate(xMasks, oMasks, numKeys, states);
+			long start = System.nanoTime();
+			for(int i = 0; i < rounds; i++)
+				evaluator.evaluate(xMasks, oMasks, numKeys, states);
+			long elapsed = System.nanoTime() - start;
+
+			double boardsPerSecond = (double)rounds * numKeys / (elapsed / 1e9);
+			System.out.println(String.format("%-20s %8.1f million boards/s, %6.3f ns/board", evaluator.getName(),
+											 boardsPerSecond / 1e6, elapsed / ((double)rounds * numKeys)));
+		}
+	}
+}
@@ -12,19 +12,80 @@
 
 import java.util.ArrayList;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import com.sun.tools.javac.util.Pair;
 
 public abstract class Agent {
 
-	protected static Random r;
+	// the random number generator shared by every agent without one of its own.
+	protected static final Random r = new Random();
+
+	// this agent's own random number generator, or null if it uses the shared one.
+	private Random random;
+
+	// Seed the random number generator shared by all agents, so that a game can be played again exactly.
+	public static void setSeed(long seed){
+		r.setSeed(seed);
+	}
+
+	// Give this agent a random number generator of its own instead of the shared one. Agents playing on different
+	//  threads at once (as in the tournament) then neither contend for the shared generator nor disturb each
+	//  other's sequence.
+	public void setRandom(Random generator){
+		random = generator;
+	}
+
+	// the generator this agent draws its random choices from.
+	protected final Random random(){
+		return (random != null) ? random : r;
+	}
 
 	// Initialize any internal state variables needed before a game is played
 	public abstract void initialize(Agent enemyAgent);
 	
 	// Given a current game state, pick a move.
 	public abstract int pickMove(Game game);
+
+	// Pick a move without waiting for it. By default pickMove is run on the executor; an agent that spends its time
+	//  waiting on something else, such as a remote player, can override this to return straight away and complete
+	//  the future when its move arrives, so that no thread is tied up while it waits.
+	public CompletableFuture<Integer> pickMoveAsync(final Game game, Executor executor){
+		return CompletableFuture.supplyAsync(() -> pickMove(game), executor);
+	}
+
+	// Pick a move without waiting for it, within a deadline. If no move has been picked timeoutMillis after the
+	//  call, or the agent picks a square that isn't empty, the future completes with the fallback instead: a random
+	//  legal move (Consts.FallbackRandom), or Consts.NoMove to forfeit the game (Consts.FallbackForfeit). The agent
+	//  is given a copy of the game, so the game may be played on while a late move is still being worked out; the
+	//  late move is ignored.
+	public final CompletableFuture<Integer> pickMoveAsync(Game game, long timeoutMillis, final int fallback,
+														  Executor executor){
+		final Game position = new Game(game);
+		final CompletableFuture<Integer> move = new CompletableFuture<Integer>();
+		pickMoveAsync(new Game(game), executor).whenComplete((picked, error) -> {
+			boolean legal = error == null && picked != null && picked >= 0 && picked < Consts.NumSquares &&
+							position.getSquare(picked) == Consts.MoveEmpty;
+			move.complete(legal ? picked : Consts.NoMove);
+		});
+		return move.completeOnTimeout(Consts.NoMove, timeoutMillis, TimeUnit.MILLISECONDS).thenApply(picked -> {
+			if(picked != Consts.NoMove)
+				return picked;
+			Counters.MissedMoves.increment();
+			if(fallback == Consts.FallbackForfeit)
+				return Consts.NoMove;
+			Integer[] moves = position.possibleMoves();
+			return moves[ThreadLocalRandom.current().nextInt(moves.length)];
+		});
+	}
 	
 	// Given a current game state, return all possible next states and the probability
 	//  of transitioning to that state.
 	public abstract ArrayList<TransitionPair> getSuccessorStates(Game game);
+
+	// Called between games. Agents that learn from the games they play update themselves here; by default this
+	//  does nothing.
+	public void adapt(){}
 }
\ No newline at end of file
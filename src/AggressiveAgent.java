@@ -30,6 +30,18 @@ public class AggressiveAgent extends RandomAgent {
 			return pickRandomMove(game);
 	}
 
+	// Batched version of pickMove.
+	public void pickMoves(int[] xMasks, int[] oMasks, int count, boolean xToMove, int[] moves){
+		for (int i = 0; i<count; i++){
+			int empty = BitBoard.Full & ~(xMasks[i] | oMasks[i]);
+			int move = pickAggressiveMove(xMasks[i], oMasks[i], xToMove);
+			if (move != Consts.NoMove)
+				moves[i] = selectMoveOrRandom(move, 5, empty);
+			else
+				moves[i] = pickRandomMove(empty);
+		}
+	}
+
 	// For a given game, returns a set of games that includes the result of all possible moves by this agent. Each
 	//  of those moves is encapsulated in a Pair with the probability of that move being selected. The chance of
 	//  a move being selected is calculated based on the rules described above.
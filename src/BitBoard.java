@@ -0,0 +1,94 @@
+/*
+ * Tic Tac Toe A simple machine learning simulator.
+ *
+ * Class: BitBoard
+ *
+ * Helper functions for boards stored as bit masks rather than Game objects. Each side's pieces are held in a 9 bit
+ * mask, where bit i is set if that side holds square i (squares are numbered as in Game, 0-8 left to right and top
+ * to bottom). This lets the batched simulator keep thousands of boards in primitive arrays.
+ *
+ * Author: 	Toby Waite
+ * Contact: toby.waite@gmail.com
+ * Updated: November 16th, 2010.
+ */
+
+public final class BitBoard {
+
+	// a mask with every square set.
+	public static final int Full = (1 << Consts.NumSquares) - 1;
+
+	// the rows, columns and diagonals of the board.
+	public static final int[] Lines = {
+		0x007, 0x038, 0x1C0,	// rows
+		0x049, 0x092, 0x124,	// columns
+		0x111, 0x054			// diagonals
+	};
+
+	// Winning[mask] is true if the squares in mask include a complete row, column, or diagonal.
+	private static final boolean[] Winning = new boolean[Full + 1];
+	// Completing[mask] holds the squares that would complete a line if added to mask (occupied or not).
+	private static final int[] Completing = new int[Full + 1];
+
+	static {
+		for(int mask = 0; mask <= Full; mask++){
+			for(int line : Lines){
+				if((mask & line) == line)
+					Winning[mask] = true;
+				else if(Integer.bitCount(mask & line) == 2)
+					Completing[mask] |= line & ~mask;
+			}
+		}
+	}
+
+	private BitBoard(){}
+
+	// true if the given set of squares contains a complete line.
+	public static boolean hasLine(int mask){
+		return Winning[mask];
+	}
+
+	// the empty squares that would complete a line for the side holding 'own'.
+	public static int completingSquares(int own, int empty){
+		return Completing[own] & empty;
+	}
+
+	// the empty squares that, without winning at once, would leave the side holding 'own' with two or more squares
+	//  that complete a line.
+	public static int forkingSquares(int own, int empty){
+		int forks = 0;
+		for(int squares = empty & ~Completing[own]; squares != 0; squares &= squares - 1){
+			int square = squares & -squares;
+			if(Integer.bitCount(Completing[own | square] & empty & ~square) >= 2)
+				forks |= square;
+		}
+		return forks;
+	}
+
+	// the lowest numbered square in a mask, or Consts.NoMove if the mask is empty.
+	public static int firstSquare(int mask){
+		return (mask == 0) ? Consts.NoMove : Integer.numberOfTrailingZeros(mask);
+	}
+
+	// the n-th (counting from zero) lowest numbered square in a mask.
+	public static int nthSquare(int mask, int n){
+		for(int i = 0; i < n; i++)
+			mask &= mask - 1; // clear the lowest set bit.
+		return Integer.numberOfTrailingZeros(mask);
+	}
+
+	// Build the X and O masks for a game board.
+	public static int xMask(int[] board){
+		return mask(board, Consts.MoveX);
+	}
+	public static int oMask(int[] board){
+		return mask(board, Consts.MoveO);
+	}
+	private static int mask(int[] board, int moveType){
+		int mask = 0;
+		for(int i = 0; i < board.length; i++){
+			if(board[i] == moveType)
+				mask |= 1 << i;
+		}
+		return mask;
+	}
+}
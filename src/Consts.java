@@ -5,6 +5,9 @@ public final class Consts{
 	public static final int OpponentAggressive = 3;
 	public static final int OpponentBalanced = 4;
 	public static final int OpponentHuman = 5;
+	public static final int OpponentForking = 6;
+	public static final int OpponentForkAware = 7;
+	public static final int OpponentRules = 8;
 	// Our agent types
 	public static final int AgentRandom= 0;
 	public static final int AgentValItr = 1;
@@ -26,6 +29,9 @@ public final class Consts{
 	// general constants
 	public static final int NumSquares = 9;
 	public static final int NoMove = -1;
+	// what happens when an agent misses a move deadline (see Agent.pickMoveAsync)
+	public static final int FallbackRandom = 0;
+	public static final int FallbackForfeit = 1;
 	// learning parameters
 	public static final double DiscountFactor = 0.8;
 	public static final int RewardInProgress = -1;
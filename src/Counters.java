@@ -0,0 +1,79 @@
+/*
+ * Tic Tac Toe A simple machine learning simulator.
+ *
+ * Class: Counters
+ *
+ * Process wide counters of training and match work. The learning agents and the match loop add to these as they
+ * go, and TicTacToe prints them when run with -counters. The counters are LongAdders, so that adding to them from
+ * several threads at once (as the tournament does) doesn't contend.
+ *
+ * For a timeline rather than totals, record the JDK Flight Recorder events (StateExpansionEvent, TableSetupEvent,
+ * SweepEvent, PolicyRoundEvent and MatchBatchEvent) instead.
+ *
+ * Author: 	Toby Waite
+ * Contact: toby.waite@gmail.com
+ * Updated: November 16th, 2010.
+ */
+
+import java.util.concurrent.atomic.LongAdder;
+import jdk.jfr.FlightRecorder;
+
+public final class Counters {
+
+	// building the StateGraph, once per process
+	public static final LongAdder Expansions = new LongAdder();
+	public static final LongAdder StatesExpanded = new LongAdder();
+	public static final LongAdder ExpansionNanos = new LongAdder();
+	// value table setup, before training
+	public static final LongAdder TableSetups = new LongAdder();
+	public static final LongAdder StatesSetUp = new LongAdder();
+	public static final LongAdder SetupNanos = new LongAdder();
+	// value sweeps, during value iteration or policy evaluation
+	public static final LongAdder Sweeps = new LongAdder();
+	public static final LongAdder Backups = new LongAdder();
+	public static final LongAdder SweepNanos = new LongAdder();
+	// policy improvement
+	public static final LongAdder PolicyRounds = new LongAdder();
+	public static final LongAdder PolicyChanges = new LongAdder();
+	public static final LongAdder ImprovementNanos = new LongAdder();
+	// match play
+	public static final LongAdder GamesPlayed = new LongAdder();
+	// moves that missed their deadline, or were illegal, and the games forfeited because of them
+	public static final LongAdder MissedMoves = new LongAdder();
+	public static final LongAdder Forfeits = new LongAdder();
+
+	private Counters(){}
+
+	// True once the flight recorder has been started, from the command line or by attaching to the process. Events
+	//  are only created when this is true, because loading the recorder's event classes adds a few hundred
+	//  milliseconds to startup.
+	public static boolean recording(){
+		return FlightRecorder.isInitialized();
+	}
+
+	// print every counter.
+	public static void print(){
+		System.out.println("State graph expansions: " + Expansions.sum() + " (" + StatesExpanded.sum() + " states, " +
+						   millis(ExpansionNanos) + "ms)");
+		System.out.println("Table setups: " + TableSetups.sum() + " (" + StatesSetUp.sum() + " states, " +
+						   millis(SetupNanos) + "ms)");
+		System.out.println("Sweeps: " + Sweeps.sum() + " (" + Backups.sum() + " backups, " + millis(SweepNanos) + "ms)");
+		System.out.println("Policy rounds: " + PolicyRounds.sum() + " (" + PolicyChanges.sum() + " policy changes, " +
+						   millis(ImprovementNanos) + "ms)");
+		System.out.println("Games played: " + GamesPlayed.sum());
+		System.out.println("Missed moves: " + MissedMoves.sum() + " (" + Forfeits.sum() + " forfeits)");
+	}
+
+	// reset every counter to zero.
+	public static void reset(){
+		LongAdder[] all = {Expansions, StatesExpanded, ExpansionNanos, TableSetups, StatesSetUp, SetupNanos, Sweeps,
+						   Backups, SweepNanos, PolicyRounds, PolicyChanges, ImprovementNanos, GamesPlayed, MissedMoves,
+						   Forfeits};
+		for(LongAdder counter : all)
+			counter.reset();
+	}
+
+	private static String millis(LongAdder nanos){
+		return String.format("%.1f", nanos.sum() / 1e6);
+	}
+}
@@ -0,0 +1,86 @@
+/* 
+ * Tic Tac Toe A simple machine learning simulator.
+ * 
+ * Class: ForkAwareAgent
+ * 
+ * ForkAwareAgent is a Tic Tac Toe agent that follows a probabilistic rule-based policy, like BalancedAgent but
+ * aware of forks (a move that leaves two ways to win, so that only one can be blocked).
+ *  - 20% of the time, the agent will choose a move from the set of remaining moves at random.
+ *  - 80% of the time, the agent makes the first of these moves that exists: a winning move, a move that blocks
+ *     the opponent from winning, a fork, or a move onto a square the opponent could fork from. If none of these
+ *     is possible, it moves randomly.
+ * Unlike the older scripted agents, it finds these moves whichever side it is playing. Threats are read from
+ * ThreatTables.
+ * 
+ * Author: 	Toby Waite
+ * Contact: toby.waite@gmail.com 
+ * Updated: November 16th, 2010.
+ */
+
+import java.util.ArrayList;
+
+public class ForkAwareAgent extends RandomAgent {
+
+	// Pick a move based on the current game, following the rules described in the class description.
+	public int pickMove(Game game){
+		int move = pickPreferredMove(game);
+		if (move != Consts.NoMove)
+			return selectMoveOrRandom(move, 5, game); // select random with 1:5 odds.
+		return pickRandomMove(game);
+	}
+
+	// the first winning, blocking, forking or fork blocking square, or Consts.NoMove if there is none.
+	private int pickPreferredMove(Game game){
+		int key = game.getStateKey(), moveType = game.getNextMove();
+		int squares = ThreatTables.winningSquares(key, moveType);
+		if (squares == 0)
+			squares = ThreatTables.blockingSquares(key, moveType);
+		if (squares == 0)
+			squares = ThreatTables.forkSquares(key, moveType);
+		if (squares == 0)
+			squares = ThreatTables.forkBlockingSquares(key, moveType);
+		return BitBoard.firstSquare(squares);
+	}
+
+	// Batched version of pickMove.
+	public void pickMoves(int[] xMasks, int[] oMasks, int count, boolean xToMove, int[] moves){
+		for (int i = 0; i<count; i++){
+			int own = xToMove ? xMasks[i] : oMasks[i];
+			int other = xToMove ? oMasks[i] : xMasks[i];
+			int empty = BitBoard.Full & ~(xMasks[i] | oMasks[i]);
+			int squares = BitBoard.completingSquares(own, empty);
+			if (squares == 0)
+				squares = BitBoard.completingSquares(other, empty);
+			if (squares == 0)
+				squares = BitBoard.forkingSquares(own, empty);
+			if (squares == 0)
+				squares = BitBoard.forkingSquares(other, empty);
+			if (squares != 0)
+				moves[i] = selectMoveOrRandom(BitBoard.firstSquare(squares), 5, empty);
+			else
+				moves[i] = pickRandomMove(empty);
+		}
+	}
+
+	// For a given game, returns a set of games that includes the result of all possible moves by this agent, each
+	//  with the probability of that move being selected under the rules described above.
+	public ArrayList<TransitionPair> getSuccessorStates(Game game) { 
+		Integer[] moves = game.possibleMoves();
+		int numMoves = moves.length;
+		double totalProbability = 1.0;
+		ArrayList<TransitionPair> sStates = new ArrayList<TransitionPair>(moves.length);
+
+		// the preferred move is picked 80% of the time, plus its chance of being picked randomly.
+		int preferred = pickPreferredMove(game);
+		if (preferred != Consts.NoMove){
+			totalProbability -= 0.8;
+			sStates.add(new TransitionPair(game.simulateMove(preferred), 0.8 + totalProbability/numMoves));
+		}
+		// distribute remaining probability over remaining moves.
+		for (int i = 0; i<moves.length; i++){
+			if(moves[i] != preferred)
+				sStates.add(new TransitionPair(game.simulateMove(moves[i]), totalProbability/numMoves));
+		}
+		return sStates;
+	}
+}
@@ -0,0 +1,57 @@
+/*
+ * Tic Tac Toe A simple machine learning simulator.
+ *
+ * Class: FrozenAgent
+ *
+ * A trained learning agent frozen into an immutable table (see ValueItrAgent.freeze and PolicyItrAgent.freeze, or
+ * MoveTableCompiler for any other deterministic agent): the move the agent makes from every board, indexed by state
+ * key. The learning agents choose their moves without any randomness once trained, so a FrozenAgent plays exactly as
+ * the agent it was frozen from did. Picking a move is a single array load, using the key the Game keeps.
+ *
+ * Nothing in a FrozenAgent changes after it is created, and it doesn't use the random number generator shared by
+ * the other agents, so one instance can pick moves for any number of games on any number of threads at once,
+ * without locks and without the threads contending for anything.
+ *
+ * Author: 	Toby Waite
+ * Contact: toby.waite@gmail.com
+ * Updated: November 16th, 2010.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public final class FrozenAgent extends Agent {
+
+	// the move for every state key, or Consts.NoMove where the board can't be reached or the game is over.
+	private final byte[] moves;
+
+	// Freeze a policy given as the move for every state in the StateGraph, by state index. The moves are copied.
+	public FrozenAgent(byte[] movesByIndex){
+		StateGraph graph = StateGraph.get();
+		moves = new byte[StateKey.NumKeys];
+		Arrays.fill(moves, (byte)Consts.NoMove);
+		for(int i = 0; i < graph.size(); i++)
+			moves[graph.getKey(i)] = movesByIndex[i];
+	}
+
+	public void initialize(Agent enemyAgent){
+		// Do nothing. A frozen agent has already been trained.
+	}
+
+	// look the board up in the table.
+	public int pickMove(Game game){
+		return moves[game.getStateKey()];
+	}
+
+	// the move for a state key.
+	public int getMove(int key){
+		return moves[key];
+	}
+
+	// A frozen agent always makes the same move from the same board, so it moves to one state with certainty.
+	public ArrayList<TransitionPair> getSuccessorStates(Game game){
+		ArrayList<TransitionPair> returnList = new ArrayList<TransitionPair>(1);
+		returnList.add(new TransitionPair(game.simulateMove(pickMove(game)), 1.0));
+		return returnList;
+	}
+}
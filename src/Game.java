@@ -28,6 +28,10 @@ public class Game{
 	// Current game state (inProgress, Won, Lost, Tied, Invalid)
 	private int gameState;
 	private int turnsElapsed;
+	// the squares played so far, one per 4 bits in the order they were played (first move in the lowest bits).
+	private long moveHistory;
+	// the state key of the board (see StateKey), kept up to date as moves are executed.
+	private int stateKey;
 
 	// Default constructor initializes a new game given two agents.
 	public Game(Agent ours, Agent theirs){
@@ -58,6 +62,8 @@ public class Game{
 		gameState = oldGame.gameState;
 		turnsElapsed = oldGame.turnsElapsed;
 		nextMove = oldGame.nextMove;
+		moveHistory = oldGame.moveHistory;
+		stateKey = oldGame.stateKey;
 	}
 
 	// constructor to specify a starting game board 
@@ -66,6 +72,7 @@ public class Game{
 		opponent = theirs;
 		currentAgent = ours;
 		board = initBoard;
+		stateKey = StateKey.encode(initBoard);
 		turnsElapsed = 9 - possibleMoves().length;
 		nextMove = (turnsElapsed % 2 == 0) ? Consts.MoveX : Consts.MoveO;
 		gameState = evaluateGameState();
@@ -76,9 +83,7 @@ public class Game{
 		while (gameState == Consts.GameInProgress){
 			try {
 				// execute current agent's move, then update game state.
-				executeMove(currentAgent.pickMove(this));
-				turnsElapsed++;
-				gameState = evaluateGameState(); // Check victory conditions and update the current game state.				
+				playMove(currentAgent.pickMove(this));
 			} catch (InvalidMoveException e) { // if an invalid move is made, don't execute a move.
 				System.out.println("Agent tried to execute an impossible move! Try again!");
 				e.printStackTrace();
@@ -87,6 +92,14 @@ public class Game{
 		return gameState; // at end of game, return gameState to specify which team won.
 	}
 	
+	// Play a move for the current agent, as playGame does: execute it, count the turn, and update the game state.
+	//  This lets a game be played one move at a time, when moves are picked elsewhere (see MoveScheduler).
+	public void playMove(int move) throws InvalidMoveException {
+		executeMove(move);
+		turnsElapsed++;
+		gameState = evaluateGameState(); // Check victory conditions and update the current game state.
+	}
+
 	// Execute a move for the current team. Public wrapper for private method below
 	public void executeMove(int move) throws InvalidMoveException {
 		executeMove(move, nextMove);
@@ -102,6 +115,8 @@ public class Game{
 		}
 		else{
 			board[move] = moveType;
+			moveHistory |= (long)move << (4*turnsElapsed);
+			stateKey = StateKey.withMove(stateKey, move, moveType);
 			// update current agent so the other agent takes the next move.
 			nextMove = (moveType == Consts.MoveX) ? Consts.MoveO : Consts.MoveX;
 			if (currentAgent == ourAgent)
@@ -217,6 +232,23 @@ public class Game{
 		gameState = inState;
 	}
 	
+	// return the moves played so far, packed 4 bits per move with the first move in the lowest bits. Only moves
+	//  played on this game (or the game it was copied from) are recorded, not those on a starting board.
+	public long getMoveHistory() {
+		return moveHistory;
+	}
+
+	// return the state key of the board, without encoding it. Changes made directly to the array returned by
+	//  getBoard aren't reflected in the key.
+	public int getStateKey() {
+		return stateKey;
+	}
+
+	// return the agent whose turn it is.
+	public Agent getCurrentAgent(){
+		return currentAgent;
+	}
+
 	// Get the value of the next move.
 	public int getNextMove(){
 		return nextMove;
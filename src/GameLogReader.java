@@ -0,0 +1,121 @@
+/*
+ * Tic Tac Toe A simple machine learning simulator.
+ *
+ * Class: GameLogReader
+ *
+ * Reads games back from a log written by GameLogWriter. See GameLogWriter for the file format.
+ *
+ * Author: 	Toby Waite
+ * Contact: toby.waite@gmail.com
+ * Updated: November 16th, 2010.
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+public class GameLogReader {
+
+	private FileChannel channel;
+	private long numGames;
+	private ByteBuffer record = ByteBuffer.allocate(GameLogWriter.RecordSize).order(ByteOrder.LITTLE_ENDIAN);
+
+	// fields of the most recently read game.
+	private long seed;
+	private int firstAgent;
+	private int secondAgent;
+	private int result;
+	private int[] moves;
+
+	public GameLogReader(String fileName) throws IOException {
+		channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+		checkHeader(channel);
+		numGames = (findEnd(channel) - GameLogWriter.HeaderSize) / GameLogWriter.RecordSize;
+	}
+
+	// return the number of games in the log.
+	public long getNumGames(){
+		return numGames;
+	}
+
+	// Read the game with the given index (starting at zero). Its fields are then available from the getters below.
+	public void readGame(long index) throws IOException {
+		if(index < 0 || index >= numGames)
+			throw new IOException("Game " + index + " is not in the log (" + numGames + " games)");
+		record.clear();
+		readFully(channel, record, GameLogWriter.HeaderSize + index * GameLogWriter.RecordSize);
+
+		seed = record.getLong(0);
+		firstAgent = record.get(8);
+		secondAgent = record.get(9);
+		result = record.get(10);
+		long packedMoves = 0;
+		for(int i = 0; i < 5; i++)
+			packedMoves |= (record.get(11 + i) & 0xFFL) << (8*i);
+		int numMoves = (int)(packedMoves & 0xF);
+		if(numMoves > GameLogWriter.MaxMoves)
+			throw new IOException("Game " + index + " has a corrupt move count (" + numMoves + ")");
+		moves = new int[numMoves];
+		for(int i = 0; i < numMoves; i++)
+			moves[i] = (int)((packedMoves >>> (4 + 4*i)) & 0xF);
+	}
+
+	public long getSeed(){
+		return seed;
+	}
+	public int getFirstAgent(){
+		return firstAgent;
+	}
+	public int getSecondAgent(){
+		return secondAgent;
+	}
+	public int getResult(){
+		return result;
+	}
+	public int[] getMoves(){
+		return moves;
+	}
+
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	// make sure a file starts with a game log header.
+	static void checkHeader(FileChannel channel) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(GameLogWriter.HeaderSize).order(ByteOrder.LITTLE_ENDIAN);
+		if(channel.size() < GameLogWriter.HeaderSize)
+			throw new IOException("File is too short to be a game log");
+		readFully(channel, header, 0);
+		if(header.getInt(0) != GameLogWriter.Magic)
+			throw new IOException("File is not a game log");
+		if(header.getShort(4) != GameLogWriter.Version || header.getShort(6) != GameLogWriter.RecordSize)
+			throw new IOException("Unsupported game log version " + header.getShort(4));
+	}
+
+	// Find the file offset just past the last complete record. A log that was not closed cleanly ends in zeroed
+	//  records, which are skipped: every real game has at least one move, so its move count is never zero.
+	static long findEnd(FileChannel channel) throws IOException {
+		long recordSize = GameLogWriter.RecordSize;
+		long end = GameLogWriter.HeaderSize + (channel.size() - GameLogWriter.HeaderSize) / recordSize * recordSize;
+		ByteBuffer count = ByteBuffer.allocate(1);
+		while(end > GameLogWriter.HeaderSize){
+			count.clear();
+			readFully(channel, count, end - recordSize + 11);
+			if((count.get(0) & 0xF) != 0)
+				break;
+			end -= recordSize;
+		}
+		return end;
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long offset) throws IOException {
+		while(buffer.hasRemaining()){
+			int read = channel.read(buffer, offset + buffer.position());
+			if(read < 0)
+				throw new IOException("Unexpected end of game log");
+		}
+	}
+}
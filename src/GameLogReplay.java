@@ -0,0 +1,92 @@
+/*
+ * Tic Tac Toe A simple machine learning simulator.
+ *
+ * Class: GameLogReplay
+ *
+ * Inspects a game log written by TicTacToe -log. Given only a log file, it lists the games in the log with their
+ * seeds, agents, results and moves. Given a game number as well, it replays that game move by move on a Game,
+ * printing the board after each move.
+ *
+ * Usage: java GameLogReplay <LogFile> [GameNumber]
+ *
+ * Author: 	Toby Waite
+ * Contact: toby.waite@gmail.com
+ * Updated: November 16th, 2010.
+ */
+
+import java.io.IOException;
+
+public class GameLogReplay {
+
+	public static void main(String[] args) {
+		if(args.length < 1 || args.length > 2){
+			System.out.println("Usage: java GameLogReplay <LogFile> [GameNumber]");
+			System.exit(1);
+		}
+		try{
+			GameLogReader log = new GameLogReader(args[0]);
+			if(args.length == 1)
+				listGames(log);
+			else
+				replayGame(log, Long.parseLong(args[1]));
+			log.close();
+		}
+		catch(NumberFormatException e){
+			System.out.println("Game number must be an integer!");
+			System.exit(1);
+		}
+		catch(IOException e){
+			System.out.println("Could not read game log: " + e.getMessage());
+			System.exit(1);
+		}
+	}
+
+	// print a one line summary of every game in the log.
+	private static void listGames(GameLogReader log) throws IOException {
+		System.out.println(log.getNumGames() + " games");
+		for(long i = 0; i < log.getNumGames(); i++){
+			log.readGame(i);
+			StringBuilder moves = new StringBuilder();
+			for(int move : log.getMoves())
+				moves.append(move);
+			System.out.println(i + ": seed " + log.getSeed() + ", agents " + log.getFirstAgent() + " vs " +
+							   log.getSecondAgent() + ", " + resultName(log.getResult()) + ", moves " + moves);
+		}
+	}
+
+	// reconstruct a game from its moves, printing the board after each move.
+	private static void replayGame(GameLogReader log, long index) throws IOException {
+		log.readGame(index);
+		System.out.println("Game " + index + ": seed " + log.getSeed() + ", agents " + log.getFirstAgent() + " vs " +
+						   log.getSecondAgent());
+		System.out.println();
+
+		Game game = new Game(null, null);
+		int turn = 1;
+		for(int move : log.getMoves()){
+			System.out.println("Move " + turn++ + ": " + ((game.getNextMove() == Consts.MoveX) ? "X" : "O") +
+							   " plays " + move);
+			game = game.simulateMove(move);
+			if(game.evaluateGameState() == Consts.GameInvalid){
+				System.out.println("The log contains an invalid move!");
+				System.exit(1);
+			}
+			game.printState();
+		}
+
+		int replayed = game.evaluateGameState();
+		System.out.println("Result: " + resultName(replayed));
+		if(replayed != log.getResult())
+			System.out.println("Warning: the log records this game as " + resultName(log.getResult()));
+	}
+
+	private static String resultName(int result){
+		switch(result){
+			case Consts.GameWon:		return "X won";
+			case Consts.GameLost:		return "O won";
+			case Consts.GameTied:		return "tied";
+			case Consts.GameInProgress:	return "in progress";
+			default:					return "invalid";
+		}
+	}
+}
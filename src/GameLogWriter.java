@@ -0,0 +1,109 @@
+/*
+ * Tic Tac Toe A simple machine learning simulator.
+ *
+ * Class: GameLogWriter
+ *
+ * Appends finished games to a binary game log. The log starts with a 16 byte header, followed by one fixed size 16
+ * byte record per game:
+ *
+ *   bytes 0-7   the seed the shared random number generator was set to before the game (see Agent.setSeed)
+ *   byte  8     the type number of the agent in the first seat (X)
+ *   byte  9     the type number of the agent in the second seat (O)
+ *   byte  10    the final game state (Consts.GameWon, GameLost or GameTied)
+ *   bytes 11-15 the number of moves in the low 4 bits, then each move in turn, 4 bits per move
+ *
+ * Because records have a fixed size, the n-th game can be found without reading the ones before it.
+ *
+ * The file is written through a memory mapped window that is moved along the file as it fills, so appending a game
+ * is a handful of stores into memory rather than a system call. When the log is closed the file is truncated to
+ * the records actually written. If the program dies before then, the unused tail of the last window is left as
+ * zeros, which readers recognise as the end of the log because no game has zero moves.
+ *
+ * Author: 	Toby Waite
+ * Contact: toby.waite@gmail.com
+ * Updated: November 16th, 2010.
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+public class GameLogWriter {
+
+	// file format constants, shared with GameLogReader.
+	static final int Magic = 0x54545447; // "TTTG"
+	static final short Version = 1;
+	static final int HeaderSize = 16;
+	static final int RecordSize = 16;
+	static final int MaxMoves = Consts.NumSquares;
+
+	// number of records mapped at a time.
+	private static final int WindowRecords = 65536;
+
+	private FileChannel channel;
+	private MappedByteBuffer window;
+	private long windowStart; // file offset of the start of the current window.
+	private long position;	  // file offset at which the next record will be written.
+
+	// Open a log for appending, creating it if it doesn't exist.
+	public GameLogWriter(String fileName) throws IOException {
+		channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE, StandardOpenOption.READ,
+								   StandardOpenOption.WRITE);
+		long size = channel.size();
+		if(size == 0){
+			ByteBuffer header = ByteBuffer.allocate(HeaderSize).order(ByteOrder.LITTLE_ENDIAN);
+			header.putInt(Magic).putShort(Version).putShort((short)RecordSize);
+			header.rewind();
+			channel.write(header, 0);
+			position = HeaderSize;
+		}
+		else{
+			GameLogReader.checkHeader(channel);
+			// resume after the last complete record, ignoring any zeroed tail left by a crash.
+			position = GameLogReader.findEnd(channel);
+		}
+		mapWindow();
+	}
+
+	// Append a finished game.
+	public void append(long seed, int firstAgent, int secondAgent, Game game) throws IOException {
+		append(seed, firstAgent, secondAgent, game.evaluateGameState(), game.getTurnsElapsed(), game.getMoveHistory());
+	}
+
+	// Append a game given as its packed move history (see Game.getMoveHistory).
+	public void append(long seed, int firstAgent, int secondAgent, int result, int numMoves, long moves) throws IOException {
+		if(position + RecordSize > windowStart + window.capacity())
+			mapWindow();
+		int offset = (int)(position - windowStart);
+		// moves are stored after a 4 bit move count.
+		long packedMoves = (numMoves & 0xF) | (moves << 4);
+		window.putLong(offset, seed);
+		window.put(offset + 8, (byte)firstAgent);
+		window.put(offset + 9, (byte)secondAgent);
+		window.put(offset + 10, (byte)result);
+		for(int i = 0; i < 5; i++)
+			window.put(offset + 11 + i, (byte)(packedMoves >>> (8*i)));
+		position += RecordSize;
+	}
+
+	// Flush the log to disk and trim the file to the records written.
+	public void close() throws IOException {
+		window.force();
+		window = null;
+		channel.truncate(position);
+		channel.close();
+	}
+
+	// map the next window of the file, starting at the current position.
+	private void mapWindow() throws IOException {
+		if(window != null)
+			window.force();
+		windowStart = position;
+		window = channel.map(FileChannel.MapMode.READ_WRITE, windowStart, (long)WindowRecords * RecordSize);
+		window.order(ByteOrder.LITTLE_ENDIAN);
+	}
+}
@@ -0,0 +1,234 @@
+/*
+ * Tic Tac Toe A simple machine learning simulator.
+ *
+ * Class: GameServer
+ *
+ * A local TCP server where remote clients play games against an agent. Each connection is a session, handled on
+ * its own thread (a virtual thread on Java 21 and later, see VirtualThreads), and every session plays against the
+ * same agent instance, so the agent must be safe to use from many threads at once. Learning agents are trained once
+ * and frozen (see FrozenAgent) before the server starts.
+ *
+ * The server's agent plays 'X' and moves first, since the learning agents only learn to play the first seat, and
+ * the client plays 'O'. The protocol is a line of ASCII text each way:
+ *
+ *   client          server
+ *   N               M <square> <state>   start a new game. The server makes its first move.
+ *   <square>        M <square> <state>   the client moves to a square (0-8), and the server replies with its move.
+ *                   E <state>            ... or, if the client's move ended the game, just the result.
+ *   Q                                    close the connection.
+ *                   ? <message>          a command the server couldn't carry out. The game is unchanged.
+ *
+ * <state> is '-' while the game is in progress, 'X' or 'O' when that side has won, and 'T' for a tie. A client may
+ * start a new game at any time, abandoning the current one.
+ *
+ * Author: 	Toby Waite
+ * Contact: toby.waite@gmail.com
+ * Updated: November 16th, 2010.
+ */
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class GameServer {
+
+	// the number of connections that may wait to be accepted.
+	private static final int Backlog = 4096;
+
+	private Agent agent;
+	private ServerSocketChannel server;
+	private ExecutorService sessions;
+	private Thread acceptor;
+
+	// statistics, for reporting
+	private final AtomicInteger activeSessions = new AtomicInteger();
+	private final AtomicLong totalSessions = new AtomicLong();
+	private final AtomicLong gamesStarted = new AtomicLong();
+	private final AtomicLong movesServed = new AtomicLong();
+
+	// Listen on the loopback address. A port of 0 picks a free port (see getPort).
+	public GameServer(Agent sharedAgent, int port) throws IOException {
+		agent = sharedAgent;
+		server = ServerSocketChannel.open();
+		server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), Backlog);
+	}
+
+	// usage: java TicTacToe server <Port> <AgentType> [TrainingOpponentType]
+	public static void main(String[] args) {
+		int first = (args.length > 0 && args[0].equals("server")) ? 1 : 0;
+		if(args.length - first < 2 || args.length - first > 3){
+			System.out.println("Usage: java TicTacToe server <Port> <AgentType> [TrainingOpponentType]");
+			System.exit(1);
+		}
+		GameServer gameServer = null;
+		try{
+			int port = Integer.parseInt(args[first]);
+			int agentType = Integer.parseInt(args[first + 1]);
+			int opponentType = (args.length - first == 3) ? Integer.parseInt(args[first + 2]) : Consts.OpponentBalanced;
+			gameServer = new GameServer(createSharedAgent(agentType, opponentType), port);
+		}
+		catch(NumberFormatException e){
+			System.out.println("All parameters must be integers!");
+			System.exit(1);
+		}
+		catch(ParameterException e){
+			System.out.println("Parameter Error: " + e.getMessage());
+			System.exit(1);
+		}
+		catch(IOException e){
+			System.out.println("Could not start server: " + e.getMessage());
+			System.exit(1);
+		}
+		gameServer.start();
+		System.out.println("Serving " + gameServer.agent.getClass().getName() + " on port " + gameServer.getPort() +
+						   (VirtualThreads.available() ? " (virtual threads)" : " (platform threads)"));
+		// the acceptor thread keeps the server running until the process is stopped.
+		try{
+			gameServer.acceptor.join();
+		} catch(InterruptedException e){
+			gameServer.close();
+		}
+	}
+
+	// Create an agent that every session can share. A learning agent is trained against a fresh opponent of the
+	//  given type and frozen.
+	public static Agent createSharedAgent(int agentType, int opponentType) throws ParameterException {
+		if(agentType == Consts.AgentHuman)
+			throw new ParameterException("The server can't play a human agent");
+		Agent ourAgent = TicTacToe.createAgent(agentType);
+		if(agentType != Consts.AgentValItr && agentType != Consts.AgentPolItr)
+			return ourAgent;
+		if(opponentType == Consts.OpponentHuman)
+			throw new ParameterException("The server's agent can't be trained against a human");
+		Agent opponent = TicTacToe.createOpponent(opponentType);
+		opponent.initialize(ourAgent);
+		ourAgent.initialize(opponent);
+		if(ourAgent instanceof ValueItrAgent)
+			return ((ValueItrAgent)ourAgent).freeze();
+		return ((PolicyItrAgent)ourAgent).freeze();
+	}
+
+	// the port the server is listening on.
+	public int getPort(){
+		try{
+			return ((InetSocketAddress)server.getLocalAddress()).getPort();
+		} catch(IOException e){
+			return -1;
+		}
+	}
+
+	public int getActiveSessions(){
+		return activeSessions.get();
+	}
+	public long getTotalSessions(){
+		return totalSessions.get();
+	}
+	public long getGamesStarted(){
+		return gamesStarted.get();
+	}
+	public long getMovesServed(){
+		return movesServed.get();
+	}
+
+	// Start accepting connections, on a thread of its own. Each connection is handed to a session thread.
+	public void start(){
+		sessions = VirtualThreads.newPerTaskExecutor("GameServer session");
+		acceptor = new Thread(new Runnable(){
+			public void run(){
+				while(server.isOpen()){
+					try{
+						final SocketChannel channel = server.accept();
+						sessions.execute(new Runnable(){
+							public void run(){
+								serve(channel);
+							}
+						});
+					} catch(IOException e){
+						// the server was closed, or the connection failed before it could be accepted.
+					}
+				}
+			}
+		}, "GameServer acceptor");
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+
+	// Stop accepting connections and close the server. Sessions already running finish their connections.
+	public void close(){
+		try{
+			server.close();
+		} catch(IOException e){
+			// the server is closed either way.
+		}
+		if(sessions != null)
+			sessions.shutdown();
+	}
+
+	// Run one session until the client quits or disconnects.
+	private void serve(SocketChannel channel){
+		activeSessions.incrementAndGet();
+		totalSessions.incrementAndGet();
+		LineChannel lines = null;
+		try{
+			lines = new LineChannel(channel);
+			Game game = null;
+			String command;
+			while((command = lines.readLine()) != null){
+				if(command.equals("Q"))
+					break;
+				if(command.equals("N")){
+					gamesStarted.incrementAndGet();
+					game = new Game(agent, agent);
+					game = agentMove(game, lines);
+				}
+				else if(command.length() == 1 && command.charAt(0) >= '0' && command.charAt(0) <= '8'){
+					int square = command.charAt(0) - '0';
+					if(game == null || game.evaluateGameState() != Consts.GameInProgress)
+						lines.writeLine("? no game in progress");
+					else if(game.getSquare(square) != Consts.MoveEmpty)
+						lines.writeLine("? square " + square + " is taken");
+					else{
+						game = game.simulateMove(square);
+						if(game.evaluateGameState() != Consts.GameInProgress)
+							lines.writeLine("E " + stateCode(game));
+						else
+							game = agentMove(game, lines);
+					}
+				}
+				else
+					lines.writeLine("? unknown command");
+			}
+		} catch(IOException e){
+			// the client went away. There's nobody to report the error to.
+		}
+		finally{
+			if(lines != null)
+				lines.close();
+			activeSessions.decrementAndGet();
+		}
+	}
+
+	// the agent moves, and the move is sent to the client along with the state of the game.
+	private Game agentMove(Game game, LineChannel lines) throws IOException {
+		int move = agent.pickMove(game);
+		game = game.simulateMove(move);
+		movesServed.incrementAndGet();
+		lines.writeLine("M " + move + " " + stateCode(game));
+		return game;
+	}
+
+	// the protocol's code for the state of a game.
+	private static char stateCode(Game game){
+		switch(game.evaluateGameState()){
+			case Consts.GameWon:	return 'X';
+			case Consts.GameLost:	return 'O';
+			case Consts.GameTied:	return 'T';
+			default:				return '-';
+		}
+	}
+}
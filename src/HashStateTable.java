@@ -0,0 +1,50 @@
+/*
+ * Tic Tac Toe A simple machine learning simulator.
+ *
+ * Class: HashStateTable
+ *
+ * A StateTable held in two hashtables on the heap, one for values and one for policies. Only the states that are
+ * put in the table take up space (5478 reachable states rather than all 19,683 (3^9) board encodings), and values
+ * are kept as doubles.
+ *
+ * Author: 	Toby Waite
+ * Contact: toby.waite@gmail.com
+ * Updated: November 16th, 2010.
+ */
+
+import java.util.Enumeration;
+import java.util.Hashtable;
+
+public class HashStateTable extends StateTable {
+
+	private Hashtable<Integer, Double> stateValues = new Hashtable<Integer, Double>();
+	private Hashtable<Integer, Integer> statePolicy = new Hashtable<Integer, Integer>();
+
+	public boolean containsKey(int key){
+		return stateValues.containsKey(key);
+	}
+
+	public double getValue(int key){
+		return stateValues.get(key);
+	}
+
+	public void putValue(int key, double value){
+		stateValues.put(key, value);
+	}
+
+	public int getPolicy(int key){
+		return statePolicy.get(key);
+	}
+
+	public void putPolicy(int key, int move){
+		statePolicy.put(key, move);
+	}
+
+	public int size(){
+		return stateValues.size();
+	}
+
+	public Enumeration<Integer> keys(){
+		return stateValues.keys();
+	}
+}
@@ -18,6 +18,9 @@ import java.util.ArrayList;
 
 public class HumanAgent extends Agent {
 
+	// one reader for the console, shared by every human agent, so that input it has buffered isn't lost.
+	private static final BufferedReader Console = new BufferedReader(new InputStreamReader(System.in));
+
 	public void initialize(Agent enemyAgent){
 		// Do nothing. Human Agents don't need initialization.
 	}
@@ -35,10 +38,14 @@ public class HumanAgent extends Agent {
 		System.out.print("My move:");
 		
 		// read in user input. If bad input is specified, allow user to try again. 
-		BufferedReader br = new BufferedReader(new InputStreamReader(System.in));
 		int move = Consts.NoMove;
 		try{
-			move = Integer.parseInt(br.readLine());
+			String line = Console.readLine();
+			if(line == null){
+				System.out.println("No more input!");
+				System.exit(1);
+			}
+			move = Integer.parseInt(line.trim());
 		} catch(IOException e){
 			e.printStackTrace();
 			System.exit(1);
@@ -0,0 +1,49 @@
+/*
+ * Tic Tac Toe A simple machine learning simulator.
+ *
+ * Class: LearningParams
+ *
+ * A container class holding the learning parameters of a ValueItrAgent or PolicyItrAgent: the discount factor and
+ * the reward for each kind of game state. A new LearningParams holds the defaults from Consts, and each field can be
+ * changed before it is given to an agent with setLearningParams.
+ *
+ * Author: 	Toby Waite
+ * Contact: toby.waite@gmail.com
+ * Updated: November 16th, 2010.
+ */
+
+public class LearningParams {
+
+	public double discountFactor = Consts.DiscountFactor;
+	public double rewardInProgress = Consts.RewardInProgress;
+	public double rewardWon = Consts.RewardWon;
+	public double rewardLost = Consts.RewardLost;
+	public double rewardTied = Consts.RewardTied;
+	public double rewardOther = Consts.RewardOther;
+
+	public LearningParams(){}
+
+	public LearningParams(double discount, double won, double lost, double tied, double inProgress){
+		discountFactor = discount;
+		rewardWon = won;
+		rewardLost = lost;
+		rewardTied = tied;
+		rewardInProgress = inProgress;
+	}
+
+	// the reward for reaching a game state (Consts.GameInProgress, GameWon, GameLost or GameTied).
+	public double getReward(int gameState){
+		switch (gameState){
+			case Consts.GameInProgress:	return rewardInProgress;
+			case Consts.GameWon:		return rewardWon;
+			case Consts.GameLost:		return rewardLost;
+			case Consts.GameTied:		return rewardTied;
+			default:					return rewardOther;
+		}
+	}
+
+	public String toString(){
+		return "discount " + discountFactor + ", won " + rewardWon + ", lost " + rewardLost + ", tied " + rewardTied +
+			   ", in progress " + rewardInProgress;
+	}
+}
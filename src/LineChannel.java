@@ -0,0 +1,80 @@
+/*
+ * Tic Tac Toe A simple machine learning simulator.
+ *
+ * Class: LineChannel
+ *
+ * Reads and writes the lines of the GameServer protocol over a blocking socket channel. Lines are ASCII and end in
+ * '\n' (a '\r' before it is ignored). Input is read through one small buffer per channel, so a line arriving in
+ * pieces, or several lines arriving at once, are both handled.
+ *
+ * Author: 	Toby Waite
+ * Contact: toby.waite@gmail.com
+ * Updated: November 16th, 2010.
+ */
+
+import java.io.IOException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+public class LineChannel {
+
+	// the longest line accepted. Every line of the protocol is much shorter.
+	public static final int MaxLineLength = 64;
+
+	private SocketChannel channel;
+	private ByteBuffer in = ByteBuffer.allocate(256);
+	private ByteBuffer out = ByteBuffer.allocate(MaxLineLength + 1);
+
+	// Wrap a connected channel. Nagle's algorithm is turned off, since every line is a request or reply that the
+	//  other side is waiting for.
+	public LineChannel(SocketChannel socket) throws IOException {
+		channel = socket;
+		channel.configureBlocking(true);
+		channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+		in.flip(); // start with nothing to read.
+	}
+
+	// Read the next line, without its line ending, or return null if the other side has closed the connection.
+	public String readLine() throws IOException {
+		StringBuilder line = new StringBuilder();
+		while(true){
+			while(in.hasRemaining()){
+				char c = (char)(in.get() & 0xFF);
+				if(c == '\n'){
+					int length = line.length();
+					if(length > 0 && line.charAt(length - 1) == '\r')
+						line.setLength(length - 1);
+					return line.toString();
+				}
+				if(line.length() >= MaxLineLength)
+					throw new IOException("line too long");
+				line.append(c);
+			}
+			in.clear();
+			int read = channel.read(in);
+			in.flip();
+			if(read < 0)
+				return null;
+		}
+	}
+
+	// Write a line, adding the line ending.
+	public void writeLine(String line) throws IOException {
+		out.clear();
+		out.put(line.getBytes(StandardCharsets.US_ASCII));
+		out.put((byte)'\n');
+		out.flip();
+		while(out.hasRemaining())
+			channel.write(out);
+	}
+
+	public void close(){
+		try{
+			channel.close();
+		} catch(IOException e){
+			// nothing more can be done with the connection.
+		}
+	}
+}
@@ -0,0 +1,186 @@
+/*
+ * Tic Tac Toe A simple machine learning simulator.
+ *
+ * Class: MappedStateTable
+ *
+ * A StateTable kept in a memory mapped file rather than on the Java heap. Each state in the state graph has a
+ * 4 byte float value and a 1 byte policy, stored by state index (see StateGraph), so the table is dense and
+ * exactly sized. The file starts with a 16 byte header, followed by every value and then every policy:
+ *
+ *   bytes 0-3   magic number 0x54545453 ("TTTS")
+ *   bytes 4-5   format version
+ *   bytes 6-7   the number of sweeps the training that filled the table took from scratch, or 0 if unknown. This
+ *               is used to report the sweeps saved by warm starts from the table.
+ *   bytes 8-11  number of states
+ *   bytes 12-15 the agent type (Consts.AgentValItr or AgentPolItr) whose training filled the table, or -1 if none
+ *               has finished yet. Only an agent of the same type can be warm started from the table.
+ *
+ * The file is mapped in chunks of up to 2^28 entries, because a single mapping is limited to 2GB. Pages are read
+ * in and written back by the operating system as they are used, so the table can be larger than the heap, and
+ * training only needs the pages for the states it is currently sweeping to be in memory.
+ *
+ * Values are stored as floats, so they keep about seven significant digits. An existing table file for the same
+ * number of states is reused, keeping its contents until they are overwritten.
+ *
+ * Author: 	Toby Waite
+ * Contact: toby.waite@gmail.com
+ * Updated: November 16th, 2010.
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Enumeration;
+import java.util.NoSuchElementException;
+
+public class MappedStateTable extends StateTable {
+
+	static final int Magic = 0x54545453; // "TTTS"
+	static final short Version = 2;
+	static final int HeaderSize = 16;
+
+	// entries per mapped chunk.
+	private static final int ChunkBits = 28;
+	private static final int ChunkMask = (1 << ChunkBits) - 1;
+
+	private StateGraph graph;
+	private FileChannel channel;
+	private MappedByteBuffer[] valueChunks;
+	private MappedByteBuffer[] policyChunks;
+	private int coldSweeps;
+	private int agentType = -1;
+
+	// Open a table file for every state in the state graph, creating it if it doesn't exist.
+	public MappedStateTable(String fileName) throws IOException {
+		graph = StateGraph.get();
+		long states = graph.size();
+		channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE, StandardOpenOption.READ,
+								   StandardOpenOption.WRITE);
+		if(channel.size() == 0){
+			ByteBuffer header = ByteBuffer.allocate(HeaderSize).order(ByteOrder.LITTLE_ENDIAN);
+			header.putInt(Magic).putShort(Version).putShort((short)0).putInt((int)states).putInt(agentType);
+			header.rewind();
+			channel.write(header, 0);
+		}
+		else{
+			ByteBuffer header = readHeader(channel, fileName);
+			coldSweeps = header.getShort(6) & 0xFFFF;
+			agentType = header.getInt(12);
+			if(header.getInt(8) != states)
+				throw new IOException(fileName + " holds a table for a different number of states");
+		}
+
+		int chunks = (int)((states + ChunkMask) >>> ChunkBits);
+		valueChunks = new MappedByteBuffer[chunks];
+		policyChunks = new MappedByteBuffer[chunks];
+		long policyStart = HeaderSize + 4 * states;
+		for(int c = 0; c < chunks; c++){
+			long first = (long)c << ChunkBits;
+			long entries = Math.min(states - first, 1L << ChunkBits);
+			valueChunks[c] = channel.map(FileChannel.MapMode.READ_WRITE, HeaderSize + 4 * first, 4 * entries);
+			valueChunks[c].order(ByteOrder.LITTLE_ENDIAN);
+			policyChunks[c] = channel.map(FileChannel.MapMode.READ_WRITE, policyStart + first, entries);
+		}
+	}
+
+	// read and check the header of an existing table file.
+	private static ByteBuffer readHeader(FileChannel channel, String fileName) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HeaderSize).order(ByteOrder.LITTLE_ENDIAN);
+		channel.read(header, 0);
+		header.flip();
+		if(header.remaining() < HeaderSize || header.getInt(0) != Magic || header.getShort(4) != Version)
+			throw new IOException(fileName + " is not a state table");
+		return header;
+	}
+
+	// The agent type recorded in a table file's header, read without mapping the table, so that a warm start can be
+	//  checked before training.
+	public static int readAgentType(String fileName) throws IOException {
+		FileChannel file = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+		try{
+			return readHeader(file, fileName).getInt(12);
+		}
+		finally{
+			file.close();
+		}
+	}
+
+	// the training recorded in the header: see the header layout above.
+	public int getColdSweeps(){
+		return coldSweeps;
+	}
+	public int getAgentType(){
+		return agentType;
+	}
+	public void setTraining(int trainedAgentType, int sweeps) throws IOException {
+		agentType = trainedAgentType;
+		coldSweeps = sweeps;
+		ByteBuffer field = ByteBuffer.allocate(2).order(ByteOrder.LITTLE_ENDIAN);
+		field.putShort((short)sweeps);
+		field.flip();
+		channel.write(field, 6);
+		field = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+		field.putInt(trainedAgentType);
+		field.flip();
+		channel.write(field, 12);
+	}
+
+	public boolean containsKey(int key){
+		return key >= 0 && key < StateKey.NumKeys && graph.indexOf(key) >= 0;
+	}
+
+	public double getValue(int key){
+		int index = graph.indexOf(key);
+		return valueChunks[index >>> ChunkBits].getFloat(4 * (index & ChunkMask));
+	}
+
+	public void putValue(int key, double value){
+		int index = graph.indexOf(key);
+		valueChunks[index >>> ChunkBits].putFloat(4 * (index & ChunkMask), (float)value);
+	}
+
+	public int getPolicy(int key){
+		int index = graph.indexOf(key);
+		return policyChunks[index >>> ChunkBits].get(index & ChunkMask);
+	}
+
+	public void putPolicy(int key, int move){
+		int index = graph.indexOf(key);
+		policyChunks[index >>> ChunkBits].put(index & ChunkMask, (byte)move);
+	}
+
+	public int size(){
+		return graph.size();
+	}
+
+	// Keys in decreasing state index order, so that a sweep through the table visits the boards with the most pieces
+	//  first and backs up each state after the states that follow it. The file is read backwards, which the
+	//  operating system handles as well as reading it forwards.
+	public Enumeration<Integer> keys(){
+		return new Enumeration<Integer>(){
+			private int next = graph.size() - 1;
+			public boolean hasMoreElements(){
+				return next >= 0;
+			}
+			public Integer nextElement(){
+				if(next < 0)
+					throw new NoSuchElementException();
+				return graph.getKey(next--);
+			}
+		};
+	}
+
+	public void close() throws IOException {
+		for(int c = 0; c < valueChunks.length; c++){
+			valueChunks[c].force();
+			policyChunks[c].force();
+		}
+		valueChunks = null;
+		policyChunks = null;
+		channel.close();
+	}
+}
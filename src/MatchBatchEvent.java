@@ -0,0 +1,36 @@
+/*
+ * Tic Tac Toe A simple machine learning simulator.
+ *
+ * Class: MatchBatchEvent
+ *
+ * A JDK Flight Recorder event covering a batch of games in a match, with the results of those games.
+ *
+ * Author: 	Toby Waite
+ * Contact: toby.waite@gmail.com
+ * Updated: November 16th, 2010.
+ */
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("tictactoe.MatchBatch")
+@Label("Match Batch")
+@Category({"Tic Tac Toe", "Match"})
+@Description("A batch of games played in a match")
+public class MatchBatchEvent extends Event {
+
+	@Label("Games")
+	public int games;
+
+	@Label("Won")
+	public int wins;
+
+	@Label("Tied")
+	public int ties;
+
+	@Label("Lost")
+	public int losses;
+}
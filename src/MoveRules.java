@@ -0,0 +1,213 @@
+/*
+ * Tic Tac Toe A simple machine learning simulator.
+ *
+ * Class: MoveRules
+ *
+ * A scripted opponent written as a list of rules rather than as a RandomAgent subclass, and compiled into a table
+ * of the probability of every move from every reachable board. Rules are tried in order, separated by '>', each
+ * with the probability of following it:
+ *
+ *   win 0.8 > block 0.8 > random
+ *
+ * The first rule that has a square to move to is followed with its probability, and otherwise the agent moves
+ * randomly, so the example plays like BalancedAgent. The rules are:
+ *  - win:       a square that completes a line for the side to move.
+ *  - block:     a square the other side would complete a line on.
+ *  - fork:      a square, other than a winning one, that leaves two or more ways to win.
+ *  - blockfork: a square the other side could fork from.
+ *  - center, corner, edge: an empty square of that kind.
+ *  - random:    any empty square. It takes no probability, and must come last; if it is left out, it is added.
+ * A probability may be left out, in which case the rule is always followed. When a rule has several squares, the
+ * lowest numbered one is taken, as the scripted agents do. Rules find their squares whichever side is playing.
+ *
+ * The table is built once, when the rules are parsed, and never changes afterwards, so one set of rules can be
+ * shared by any number of RuleAgents on any number of threads.
+ *
+ * Author: 	Toby Waite
+ * Contact: toby.waite@gmail.com
+ * Updated: November 16th, 2010.
+ */
+
+import java.util.ArrayList;
+import java.util.Random;
+
+public final class MoveRules {
+
+	// the rule names, and the rule numbers used in the compiled rules.
+	private static final String[] RuleNames = {"win", "block", "fork", "blockfork", "center", "corner", "edge",
+											   "random"};
+	private static final int RuleWin = 0;
+	private static final int RuleBlock = 1;
+	private static final int RuleFork = 2;
+	private static final int RuleBlockFork = 3;
+	private static final int RuleCenter = 4;
+	private static final int RuleCorner = 5;
+	private static final int RuleEdge = 6;
+	private static final int RuleRandom = 7;
+
+	// bit masks (see BitBoard) of the center, corner and edge squares.
+	private static final int CenterSquares = 1 << 4;
+	private static final int CornerSquares = (1 << 0) | (1 << 2) | (1 << 6) | (1 << 8);
+	private static final int EdgeSquares = (1 << 1) | (1 << 3) | (1 << 5) | (1 << 7);
+
+	private final String text;
+	private final int[] rules;
+	private final double[] ruleProbabilities;
+
+	private final StateGraph graph;
+	// probabilities[index * NumSquares + square] is the chance of moving to square from the state with that
+	//  StateGraph index. The entries for finished games are all zero.
+	private final double[] probabilities;
+	// the square the followed rule moves to from each state, or Consts.NoMove if the agent moves randomly.
+	private final byte[] preferred;
+
+	private MoveRules(String ruleText, int[] ruleList, double[] ruleProbabilityList){
+		text = ruleText;
+		rules = ruleList;
+		ruleProbabilities = ruleProbabilityList;
+		graph = StateGraph.get();
+		probabilities = new double[graph.size() * Consts.NumSquares];
+		preferred = new byte[graph.size()];
+		for(int i = 0; i < graph.size(); i++){
+			if(!graph.isTerminal(i))
+				compileState(i);
+		}
+	}
+
+	// Parse a list of rules (described above) and compile it.
+	public static MoveRules parse(String ruleText) throws ParameterException {
+		String[] parts = ruleText.trim().split("\\s*>\\s*");
+		int[] ruleList = new int[parts.length + 1];
+		double[] ruleProbabilityList = new double[parts.length + 1];
+		int count = 0;
+		for(String part : parts){
+			if(count > 0 && ruleList[count-1] == RuleRandom)
+				throw new ParameterException("No rule can follow random, in \"" + ruleText + "\"");
+			String[] words = part.trim().split("\\s+");
+			int rule = ruleNumber(words[0]);
+			if(rule < 0)
+				throw new ParameterException("Unknown rule \"" + words[0] + "\" in \"" + ruleText + "\"");
+			double probability = 1.0;
+			if(words.length > 2 || (words.length == 2 && rule == RuleRandom))
+				throw new ParameterException("Rules are written as <rule> <probability>, e.g. win 0.8, and random " +
+											 "takes no probability, in \"" + ruleText + "\"");
+			if(words.length == 2){
+				try{
+					probability = Double.parseDouble(words[1]);
+				} catch(NumberFormatException e){
+					throw new ParameterException("Rule probability \"" + words[1] + "\" must be a number");
+				}
+				if(!(probability > 0.0 && probability <= 1.0))
+					throw new ParameterException("Rule probability " + words[1] + " must be above 0 and at most 1");
+			}
+			ruleList[count] = rule;
+			ruleProbabilityList[count] = probability;
+			count++;
+		}
+		// moving randomly is always the last resort.
+		if(ruleList[count-1] != RuleRandom){
+			ruleList[count] = RuleRandom;
+			ruleProbabilityList[count] = 1.0;
+			count++;
+		}
+		int[] compiledRules = new int[count];
+		double[] compiledProbabilities = new double[count];
+		System.arraycopy(ruleList, 0, compiledRules, 0, count);
+		System.arraycopy(ruleProbabilityList, 0, compiledProbabilities, 0, count);
+		return new MoveRules(ruleText.trim(), compiledRules, compiledProbabilities);
+	}
+
+	private static int ruleNumber(String name){
+		for(int rule = 0; rule < RuleNames.length; rule++){
+			if(RuleNames[rule].equals(name))
+				return rule;
+		}
+		return -1;
+	}
+
+	// Work out the move probabilities from one state: the first rule with a square puts its probability on that
+	//  square, and the rest is spread evenly over every empty square, the rule's square included. These are the
+	//  sums the scripted agents' getSuccessorStates make, so equivalent rules give exactly the same probabilities.
+	private void compileState(int index){
+		preferred[index] = Consts.NoMove;
+		int key = graph.getKey(index);
+		int moveType = graph.getSideToMove(index);
+		int empty = BitBoard.Full & ~(StateKey.xMask(key) | StateKey.oMask(key));
+		int numMoves = Integer.bitCount(empty);
+		int base = index * Consts.NumSquares;
+		for(int r = 0; r < rules.length; r++){
+			int squares = ruleSquares(rules[r], key, moveType, empty);
+			if(squares == 0)
+				continue;
+			double totalProbability = 1.0;
+			if(rules[r] != RuleRandom){
+				preferred[index] = (byte)BitBoard.firstSquare(squares);
+				totalProbability -= ruleProbabilities[r];
+			}
+			for(int rest = empty; rest != 0; rest &= rest - 1){
+				int square = Integer.numberOfTrailingZeros(rest);
+				probabilities[base + square] = (square == preferred[index]) ?
+											   ruleProbabilities[r] + totalProbability/numMoves : totalProbability/numMoves;
+			}
+			return;
+		}
+	}
+
+	// the squares a rule would move to from a board.
+	private static int ruleSquares(int rule, int key, int moveType, int empty){
+		switch(rule){
+			case RuleWin:		return ThreatTables.winningSquares(key, moveType);
+			case RuleBlock:		return ThreatTables.blockingSquares(key, moveType);
+			case RuleFork:		return ThreatTables.forkSquares(key, moveType);
+			case RuleBlockFork:	return ThreatTables.forkBlockingSquares(key, moveType);
+			case RuleCenter:	return empty & CenterSquares;
+			case RuleCorner:	return empty & CornerSquares;
+			case RuleEdge:		return empty & EdgeSquares;
+			default:			return empty;
+		}
+	}
+
+	// the chance of moving to a square from a board, given by its state key.
+	public double getProbability(int key, int square){
+		return probabilities[graph.indexOf(key) * Consts.NumSquares + square];
+	}
+
+	// Draw a move from a board, given by its state key, which must be a game in progress.
+	public int sampleMove(int key, Random random){
+		int base = graph.indexOf(key) * Consts.NumSquares;
+		double u = random.nextDouble();
+		int last = Consts.NoMove;
+		for(int square = 0; square < Consts.NumSquares; square++){
+			double p = probabilities[base + square];
+			if(p == 0.0)
+				continue;
+			if(u < p)
+				return square;
+			u -= p;
+			last = square;
+		}
+		// the probabilities may add up to a little under one.
+		return last;
+	}
+
+	// The moves from a game's board and their probabilities: the followed rule's square first, if there is one,
+	//  and then the rest in increasing square order. This is the order the scripted agents list them in, so a
+	//  learner sums their values in the same order, and learns the same policy, against equivalent rules.
+	public ArrayList<TransitionPair> getSuccessorStates(Game game){
+		int index = graph.indexOf(game.getStateKey());
+		int base = index * Consts.NumSquares;
+		ArrayList<TransitionPair> sStates = new ArrayList<TransitionPair>(Consts.NumSquares);
+		if(preferred[index] != Consts.NoMove)
+			sStates.add(new TransitionPair(game.simulateMove(preferred[index]), probabilities[base + preferred[index]]));
+		for(int square = 0; square < Consts.NumSquares; square++){
+			if(square != preferred[index] && probabilities[base + square] > 0.0)
+				sStates.add(new TransitionPair(game.simulateMove(square), probabilities[base + square]));
+		}
+		return sStates;
+	}
+
+	// the rules in the form they were given.
+	public String toString(){
+		return text;
+	}
+}
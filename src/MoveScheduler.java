@@ -0,0 +1,116 @@
+/*
+ * Tic Tac Toe A simple machine learning simulator.
+ *
+ * Class: MoveScheduler
+ *
+ * Plays games one move at a time through Agent.pickMoveAsync, so that any number of games can be in flight on a
+ * small, fixed pool of threads. A game doesn't hold a thread between moves: each move is picked as a task of its
+ * own, and the game carries on from whichever thread completes it. An agent that overrides pickMoveAsync to wait
+ * without a thread (a remote agent, say) takes no thread at all while its move is outstanding.
+ *
+ * Every move must be picked within the scheduler's deadline. A move that misses it, or isn't legal, is replaced by
+ * the fallback (see Agent.pickMoveAsync): a random move, or a forfeit, in which case the agent that missed the
+ * deadline loses the game.
+ *
+ * A pickMove that never returns (a HumanAgent waiting on the console, for example) still holds the pool thread it
+ * runs on after its deadline has passed, since there is no safe way to stop it.
+ *
+ * Author: 	Toby Waite
+ * Contact: toby.waite@gmail.com
+ * Updated: November 16th, 2010.
+ */
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+public class MoveScheduler {
+
+	private ExecutorService pool;
+	private long moveTimeoutMillis;
+	private int fallback;
+
+	// A scheduler with the given number of threads, deadline per move, and fallback (Consts.FallbackRandom or
+	//  Consts.FallbackForfeit).
+	public MoveScheduler(int threads, long timeoutMillis, int fallbackPolicy){
+		moveTimeoutMillis = timeoutMillis;
+		fallback = fallbackPolicy;
+		pool = Executors.newFixedThreadPool(threads, new ThreadFactory(){
+			public Thread newThread(Runnable task){
+				Thread thread = new Thread(task, "MoveScheduler");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	// Play a game to the end, returning a future for its final state (Consts.GameWon, GameLost or GameTied, from
+	//  the point of view of the first seat). The game must not be used elsewhere until the future completes.
+	public CompletableFuture<Integer> playGame(final Game game){
+		if(game.evaluateGameState() != Consts.GameInProgress)
+			return CompletableFuture.completedFuture(game.evaluateGameState());
+		final Agent mover = game.getCurrentAgent();
+		final boolean firstSeat = (game.getNextMove() == Consts.MoveX);
+		return mover.pickMoveAsync(game, moveTimeoutMillis, fallback, pool).thenComposeAsync(move -> {
+			if(move == Consts.NoMove){
+				// the agent to move forfeits.
+				Counters.Forfeits.increment();
+				int result = firstSeat ? Consts.GameLost : Consts.GameWon;
+				game.setGameState(result);
+				Counters.GamesPlayed.increment();
+				return CompletableFuture.completedFuture(result);
+			}
+			try{
+				game.playMove(move);
+			} catch(InvalidMoveException e){
+				// pickMoveAsync only passes on legal moves.
+				throw new IllegalStateException(e.getMessage());
+			}
+			int state = game.evaluateGameState();
+			if(state != Consts.GameInProgress){
+				Counters.GamesPlayed.increment();
+				return CompletableFuture.completedFuture(state);
+			}
+			return playGame(game);
+		}, pool);
+	}
+
+	// Play numGames games between two agents, with up to maxInFlight of them in flight at once, returning a future
+	//  for {wins, ties, losses} from the point of view of the first seat. Each move's deadline starts when it is
+	//  asked for, so it includes any time spent queued for a thread; limiting the games in flight keeps that short.
+	public CompletableFuture<int[]> playMatch(final Agent first, final Agent second, final int numGames, int maxInFlight){
+		final int[] results = new int[numGames];
+		int lanes = Math.max(1, Math.min(numGames, maxInFlight));
+		CompletableFuture<?>[] lanesDone = new CompletableFuture<?>[lanes];
+		for(int lane = 0; lane < lanes; lane++)
+			lanesDone[lane] = playFrom(lane, lanes, first, second, results);
+		return CompletableFuture.allOf(lanesDone).thenApply(done -> {
+			int[] tally = new int[3];
+			for(int result : results){
+				switch(result){
+					case Consts.GameWon:	tally[0]++; break;
+					case Consts.GameTied:	tally[1]++; break;
+					case Consts.GameLost:	tally[2]++; break;
+				}
+			}
+			return tally;
+		});
+	}
+
+	// play games index, index + stride, ... one after another, recording their results.
+	private CompletableFuture<Void> playFrom(final int index, final int stride, final Agent first, final Agent second,
+											 final int[] results){
+		if(index >= results.length)
+			return CompletableFuture.completedFuture(null);
+		return playGame(new Game(first, second)).thenCompose(result -> {
+			results[index] = result;
+			return playFrom(index + stride, stride, first, second, results);
+		});
+	}
+
+	// Stop the pool's threads once the games in flight have finished.
+	public void close(){
+		pool.shutdown();
+	}
+}
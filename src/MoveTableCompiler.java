@@ -0,0 +1,74 @@
+/*
+ * Tic Tac Toe A simple machine learning simulator.
+ *
+ * Class: MoveTableCompiler
+ *
+ * Compiles an agent that always makes the same move from the same board into a FrozenAgent: a table of the move it
+ * makes from every reachable board, by state key, so that picking a move is a single array load rather than
+ * whatever work the agent does (a trained ValueItrAgent, for example, simulates every legal move and looks each one
+ * up in its value table).
+ *
+ * Whether an agent is deterministic is checked by probing: it is asked for its move from each board several times,
+ * each time on a fresh copy of the board, and compiling fails if the answers ever differ. An agent that only
+ * occasionally chooses at random could slip through, so countDifferences can be used to compare the compiled agent
+ * with the original afterwards.
+ *
+ * Author: 	Toby Waite
+ * Contact: toby.waite@gmail.com
+ * Updated: November 16th, 2010.
+ */
+
+public final class MoveTableCompiler {
+
+	// the number of times the agent is asked for its move from each board.
+	public static final int DefaultProbes = 4;
+
+	private MoveTableCompiler(){}
+
+	public static FrozenAgent compile(Agent agent){
+		return compile(agent, DefaultProbes);
+	}
+
+	// Ask the agent for its move from every reachable board where the game is in progress, 'probes' times each.
+	//  Throws IllegalArgumentException if the agent isn't deterministic or picks a move that isn't a square.
+	public static FrozenAgent compile(Agent agent, int probes){
+		StateGraph graph = StateGraph.get();
+		byte[] moves = new byte[graph.size()];
+		for(int i = 0; i < graph.size(); i++){
+			if(graph.isTerminal(i)){
+				moves[i] = (byte)Consts.NoMove;
+				continue;
+			}
+			int key = graph.getKey(i);
+			int move = pickMove(agent, key);
+			if(move < Consts.NoMove || move >= Consts.NumSquares)
+				throw new IllegalArgumentException(agent.getClass().getName() + " picked square " + move +
+												   " from state " + key);
+			for(int p = 1; p < probes; p++){
+				int again = pickMove(agent, key);
+				if(again != move)
+					throw new IllegalArgumentException(agent.getClass().getName() + " is not deterministic: it picked " +
+													   move + " and then " + again + " from state " + key);
+			}
+			moves[i] = (byte)move;
+		}
+		return new FrozenAgent(moves);
+	}
+
+	// The number of reachable boards in progress from which two agents pick different moves. Zero means that the
+	//  agents play identically.
+	public static int countDifferences(Agent original, Agent compiled){
+		StateGraph graph = StateGraph.get();
+		int differences = 0;
+		for(int i = 0; i < graph.size(); i++){
+			if(!graph.isTerminal(i) && pickMove(original, graph.getKey(i)) != pickMove(compiled, graph.getKey(i)))
+				differences++;
+		}
+		return differences;
+	}
+
+	// ask an agent for its move from a fresh game with the given board.
+	private static int pickMove(Agent agent, int key){
+		return agent.pickMove(new Game(agent, agent, StateKey.decode(key)));
+	}
+}
@@ -19,6 +19,12 @@ public class NaiveAgent extends RandomAgent {
 		return pickRandomMove(game);
 	}
 
+	// Batched version of pickMove.
+	public void pickMoves(int[] xMasks, int[] oMasks, int count, boolean xToMove, int[] moves) {
+		for (int i = 0; i<count; i++)
+			moves[i] = pickRandomMove(BitBoard.Full & ~(xMasks[i] | oMasks[i]));
+	}
+
 	// For a given game, returns a set of games that includes the result of all possible moves by this agent. Each
 	//  of those moves is encapsulated in a Pair with the probability of that move being selected. The chance of
 	//  each move being selected is equal for the NaiveAgent.
@@ -0,0 +1,106 @@
+/*
+ * Tic Tac Toe A simple machine learning simulator.
+ *
+ * Class: OpponentModel
+ *
+ * An OpponentModel stands in for an opponent and learns how it actually plays. It passes every move request on to
+ * the real opponent, and counts the move the opponent made in each state. When a learning agent asks it for
+ * transition probabilities, it answers with the observed move frequencies, smoothed towards what the opponent
+ * itself reports (its getSuccessorStates). Until a state has been seen, the model's answer is exactly the
+ * opponent's own.
+ *
+ * This matters most for HumanAgent, whose reported model (every move equally likely) is only a placeholder. The
+ * model keeps track of the states whose probabilities have changed since they were last collected, so that a
+ * learning agent can retrain on just those states between games (see ValueItrAgent.adapt and
+ * PolicyItrAgent.adapt).
+ *
+ * Author: 	Toby Waite
+ * Contact: toby.waite@gmail.com
+ * Updated: November 16th, 2010.
+ */
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Hashtable;
+
+public class OpponentModel extends Agent {
+
+	// weight of the opponent's own model, as a number of imaginary observed moves.
+	public static final double PriorWeight = 2.0;
+
+	private Agent opponent;
+	// moveCounts maps a state key to the number of times the opponent made each move in that state.
+	private Hashtable<Integer, int[]> moveCounts;
+	// states observed since the last call to takeChangedStates.
+	private HashSet<Integer> changedStates;
+
+	public OpponentModel(Agent modelledAgent){
+		opponent = modelledAgent;
+		moveCounts = new Hashtable<Integer, int[]>();
+		changedStates = new HashSet<Integer>();
+	}
+
+	public void initialize(Agent enemyAgent){
+		opponent.initialize(enemyAgent);
+	}
+
+	// ask the real opponent for a move, and record it.
+	public int pickMove(Game game){
+		int move = opponent.pickMove(game);
+		if(move >= 0 && move < Consts.NumSquares && game.getSquare(move) == Consts.MoveEmpty){
+			int key = StateKey.encode(game.getBoard());
+			int[] counts = moveCounts.get(key);
+			if(counts == null){
+				counts = new int[Consts.NumSquares];
+				moveCounts.put(key, counts);
+			}
+			counts[move]++;
+			changedStates.add(key);
+		}
+		return move;
+	}
+
+	// Return the observed move probabilities. Each move's probability is its observed count plus PriorWeight times
+	//  the probability the opponent gives it, divided by the number of observations plus PriorWeight.
+	public ArrayList<TransitionPair> getSuccessorStates(Game game){
+		ArrayList<TransitionPair> prior = opponent.getSuccessorStates(game);
+		int[] counts = moveCounts.get(StateKey.encode(game.getBoard()));
+		if(counts == null)
+			return prior;
+
+		// find the prior probability of each move from the square each successor state adds.
+		double[] priorProbability = new double[Consts.NumSquares];
+		for(TransitionPair successor : prior){
+			for(int square = 0; square < Consts.NumSquares; square++){
+				if(game.getSquare(square) != successor.game.getSquare(square)){
+					priorProbability[square] += successor.probability;
+					break;
+				}
+			}
+		}
+		int observations = 0;
+		for(int count : counts)
+			observations += count;
+
+		Integer[] moves = game.possibleMoves();
+		ArrayList<TransitionPair> sStates = new ArrayList<TransitionPair>(moves.length);
+		for(int move : moves){
+			double probability = (counts[move] + PriorWeight * priorProbability[move]) / (observations + PriorWeight);
+			if(probability > 0)
+				sStates.add(new TransitionPair(game.simulateMove(move), probability));
+		}
+		return sStates;
+	}
+
+	// Return the keys of the states where a move has been observed since the last call, and start a new set.
+	public HashSet<Integer> takeChangedStates(){
+		HashSet<Integer> changed = changedStates;
+		changedStates = new HashSet<Integer>();
+		return changed;
+	}
+
+	// return the opponent being modelled.
+	public Agent getOpponent(){
+		return opponent;
+	}
+}
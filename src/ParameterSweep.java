@@ -0,0 +1,274 @@
+/*
+ * Tic Tac Toe A simple machine learning simulator.
+ *
+ * Class: ParameterSweep
+ *
+ * A parameter sweep trains a learning agent with every combination of a grid of discount factors and rewards (see
+ * LearningParams), plays each variant against an opponent, and writes a table of the results. Every variant is
+ * trained and played inside a single JVM, on a pool with one thread per core.
+ *
+ * The variants share the StateGraph, and the variants trained against the same opponent share a single
+ * TransitionModel of it, so the state space is expanded once and the opponent is only asked for its move
+ * probabilities once per state, however many variants there are.
+ *
+ * Author: 	Toby Waite
+ * Contact: toby.waite@gmail.com
+ * Updated: November 16th, 2010.
+ */
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class ParameterSweep {
+
+	// the grid. Each variant takes one value from each list.
+	private int[] agentTypes = {Consts.AgentValItr, Consts.AgentPolItr};
+	private int[] opponentTypes = {Consts.OpponentBalanced};
+	private double[] discounts = {Consts.DiscountFactor};
+	private double[] won = {Consts.RewardWon};
+	private double[] lost = {Consts.RewardLost};
+	private double[] tied = {Consts.RewardTied};
+	private double[] inProgress = {Consts.RewardInProgress};
+
+	private int numGames;
+	private ArrayList<Variant> variants = new ArrayList<Variant>();
+
+	// one agent, opponent and set of parameters, and its results once it has been run.
+	private static class Variant {
+		int agentType;
+		int opponentType;
+		LearningParams params;
+		TrainingStats stats;
+		long trainNanos;
+		int[] tally;
+	}
+
+	public ParameterSweep(int n){
+		numGames = n;
+	}
+
+	// usage: java TicTacToe sweep <NumberOfGames> [-agent <Types>] [-opponent <Types>] [-discount <Values>]
+	//  [-won <Values>] [-lost <Values>] [-tied <Values>] [-inprogress <Values>] [-out <ResultsFile>]
+	public static void main(String[] args) {
+		int first = (args.length > 0 && args[0].equals("sweep")) ? 1 : 0;
+		if(args.length - first < 1){
+			printUsage();
+			System.exit(1);
+		}
+		ParameterSweep sweep = null;
+		String resultsFile = "sweep.csv";
+		try{
+			sweep = new ParameterSweep(Integer.parseInt(args[first]));
+			if(sweep.numGames < 1)
+				throw new ParameterException("Number of games must be positive!");
+			for(int i = first + 1; i < args.length; i++){
+				if(i + 1 >= args.length)
+					throw new ParameterException(args[i] + " requires a value.");
+				String value = args[++i];
+				switch(args[i-1]){
+					case "-agent":		sweep.agentTypes = parseInts(value); break;
+					case "-opponent":	sweep.opponentTypes = parseInts(value); break;
+					case "-discount":	sweep.discounts = parseDoubles(value); break;
+					case "-won":		sweep.won = parseDoubles(value); break;
+					case "-lost":		sweep.lost = parseDoubles(value); break;
+					case "-tied":		sweep.tied = parseDoubles(value); break;
+					case "-inprogress":	sweep.inProgress = parseDoubles(value); break;
+					case "-out":		resultsFile = value; break;
+					default:			throw new ParameterException("Unknown option " + args[i-1]);
+				}
+			}
+			sweep.buildGrid();
+		}
+		catch(NumberFormatException e){
+			System.out.println("Parameter Error: could not read number " + e.getMessage());
+			printUsage();
+			System.exit(1);
+		}
+		catch(ParameterException e){
+			System.out.println("Parameter Error: " + e.getMessage());
+			printUsage();
+			System.exit(1);
+		}
+
+		sweep.run();
+		sweep.showResults();
+		try{
+			sweep.writeResults(resultsFile);
+			System.out.println("Results written to " + resultsFile);
+		} catch(IOException e){
+			System.out.println("Could not write results: " + e.getMessage());
+			System.exit(1);
+		}
+	}
+
+	private static void printUsage(){
+		System.out.println("Usage: java TicTacToe sweep <NumberOfGames> [-agent <Types>] [-opponent <Types>] [-discount <Values>]");
+		System.out.println("                            [-won <Values>] [-lost <Values>] [-tied <Values>] [-inprogress <Values>]");
+		System.out.println("                            [-out <ResultsFile>]");
+		System.out.println("Values are comma separated, e.g. -discount 0.5,0.8,0.95");
+	}
+
+	// a comma separated list of numbers.
+	private static int[] parseInts(String list){
+		String[] parts = list.split(",");
+		int[] values = new int[parts.length];
+		for(int i = 0; i < parts.length; i++)
+			values[i] = Integer.parseInt(parts[i].trim());
+		return values;
+	}
+	private static double[] parseDoubles(String list){
+		String[] parts = list.split(",");
+		double[] values = new double[parts.length];
+		for(int i = 0; i < parts.length; i++)
+			values[i] = Double.parseDouble(parts[i].trim());
+		return values;
+	}
+
+	// Make a variant for every combination in the grid, checking the agent and opponent types as we go.
+	private void buildGrid() throws ParameterException {
+		for(int agent : agentTypes){
+			if(agent != Consts.AgentValItr && agent != Consts.AgentPolItr)
+				throw new ParameterException("Only the learning agents (1 and 2) can be swept.");
+		}
+		for(int opp : opponentTypes){
+			if(opp == Consts.OpponentHuman)
+				throw new ParameterException("A sweep can't be played against a human.");
+			TicTacToe.createOpponent(opp);
+		}
+		for(int opp : opponentTypes)
+			for(int agent : agentTypes)
+				for(double d : discounts)
+					for(double w : won)
+						for(double l : lost)
+							for(double t : tied)
+								for(double p : inProgress){
+									Variant variant = new Variant();
+									variant.agentType = agent;
+									variant.opponentType = opp;
+									variant.params = new LearningParams(d, w, l, t, p);
+									variants.add(variant);
+								}
+	}
+
+	// Train and play every variant. The transition model of each opponent is built first, once, and handed to
+	//  every variant that trains against it.
+	public void run(){
+		int threads = Runtime.getRuntime().availableProcessors();
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		ArrayList<CompletableFuture<Void>> tasks = new ArrayList<CompletableFuture<Void>>();
+		try{
+			for(int opp : opponentTypes){
+				final CompletableFuture<TransitionModel> model =
+					CompletableFuture.supplyAsync(() -> new TransitionModel(createOpponent(opp)), pool);
+				for(Variant variant : variants){
+					if(variant.opponentType == opp)
+						tasks.add(model.thenAcceptAsync(m -> runVariant(variant, m), pool));
+				}
+			}
+			CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0])).join();
+		}
+		finally{
+			pool.shutdown();
+		}
+	}
+
+	// train one variant against a fresh opponent, then play numGames games against it.
+	private void runVariant(Variant variant, TransitionModel model){
+		Agent opponent = createOpponent(variant.opponentType);
+		Agent learner;
+		long start = System.nanoTime();
+		if(variant.agentType == Consts.AgentValItr){
+			ValueItrAgent agent = new ValueItrAgent();
+			agent.setLearningParams(variant.params);
+			agent.setTransitionModel(model);
+			opponent.initialize(agent);
+			agent.initialize(opponent);
+			variant.stats = agent.getTrainingStats();
+			learner = agent;
+		}
+		else{
+			PolicyItrAgent agent = new PolicyItrAgent();
+			agent.setLearningParams(variant.params);
+			agent.setTransitionModel(model);
+			opponent.initialize(agent);
+			agent.initialize(opponent);
+			variant.stats = agent.getTrainingStats();
+			learner = agent;
+		}
+		variant.trainNanos = System.nanoTime() - start;
+
+		int[] tally = new int[3];
+		for(int i = 0; i < numGames; i++){
+			switch(new Game(learner, opponent).playGame()){
+				case Consts.GameWon:	tally[0]++; break;
+				case Consts.GameTied:	tally[1]++; break;
+				case Consts.GameLost:	tally[2]++; break;
+			}
+		}
+		variant.tally = tally;
+	}
+
+	private static Agent createOpponent(int opp){
+		try{
+			return TicTacToe.createOpponent(opp);
+		} catch(ParameterException e){
+			throw new IllegalStateException(e.getMessage());
+		}
+	}
+
+	private static String agentName(int agentType){
+		return (agentType == Consts.AgentValItr) ? "ValItr" : "PolItr";
+	}
+
+	private static String opponentName(int opponentType){
+		switch(opponentType){
+			case Consts.OpponentRandom:		return "Random";
+			case Consts.OpponentDefensive:	return "Defensive";
+			case Consts.OpponentAggressive:	return "Aggressive";
+			case Consts.OpponentForking:	return "Forking";
+			case Consts.OpponentForkAware:	return "ForkAware";
+			default:						return "Balanced";
+		}
+	}
+
+	// print every variant, best win rate first within each opponent.
+	public void showResults(){
+		System.out.println(String.format("%-6s %-10s %8s %6s %6s %6s %10s %6s %6s %9s %7s %7s %7s %8s", "Agent",
+			"Opponent", "Discount", "Won", "Lost", "Tied", "InProgress", "Sweeps", "Rounds", "Train(ms)", "Wins",
+			"Ties", "Losses", "WinRate"));
+		ArrayList<Variant> sorted = new ArrayList<Variant>(variants);
+		sorted.sort((a, b) -> (a.opponentType != b.opponentType) ? a.opponentType - b.opponentType :
+								Integer.compare(b.tally[0], a.tally[0]));
+		for(Variant v : sorted){
+			System.out.println(String.format("%-6s %-10s %8.3f %6.2f %6.2f %6.2f %10.2f %6d %6d %9.1f %7d %7d %7d %7.1f%%",
+				agentName(v.agentType), opponentName(v.opponentType), v.params.discountFactor, v.params.rewardWon,
+				v.params.rewardLost, v.params.rewardTied, v.params.rewardInProgress, v.stats.sweeps,
+				v.stats.policyRounds, v.trainNanos / 1e6, v.tally[0], v.tally[1], v.tally[2],
+				100.0 * v.tally[0] / numGames));
+		}
+	}
+
+	// write every variant as a row of a CSV file, in grid order.
+	public void writeResults(String fileName) throws IOException {
+		PrintWriter out = new PrintWriter(new FileWriter(fileName));
+		try{
+			out.println("agent,opponent,discount,won,lost,tied,inProgress,sweeps,policyRounds,trainMs,games,wins,ties,losses,winRate");
+			for(Variant v : variants){
+				out.println(agentName(v.agentType) + "," + opponentName(v.opponentType) + "," + v.params.discountFactor +
+					"," + v.params.rewardWon + "," + v.params.rewardLost + "," + v.params.rewardTied + "," +
+					v.params.rewardInProgress + "," + v.stats.sweeps + "," + v.stats.policyRounds + "," +
+					String.format(Locale.ROOT, "%.3f", v.trainNanos / 1e6) + "," + numGames + "," + v.tally[0] + "," +
+					v.tally[1] + "," + v.tally[2] + "," + String.format(Locale.ROOT, "%.4f", v.tally[0] / (double)numGames));
+			}
+		}
+		finally{
+			out.close();
+		}
+	}
+}
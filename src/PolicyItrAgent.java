@@ -27,60 +27,153 @@
  */
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Enumeration;
-import java.util.Hashtable;
-import java.util.Random;
+import java.util.HashSet;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class PolicyItrAgent extends Agent {
 
-	// A hashtable is used to store the state values and state policy for tic tac toe. This allows us to store only
-	// values of reachable game states (5478 states), rather than all 19,683 (3^9) possible configurations of the 3x3 grid.
-	private Hashtable<Integer, Double> stateValues; // maps a game state to a expected value for reaching that state.
-	private Hashtable<Integer, Integer> statePolicy; // maps a game state to the current policy at that state.
+	// A hashtable is used to store the state values and state policy for tic tac toe by default (see HashStateTable).
+	// This allows us to store only values of reachable game states (5478 states), rather than all 19,683 (3^9) possible
+	// configurations of the 3x3 grid. The table maps a game state to an expected value for reaching that state, and to
+	// the current policy at that state.
+	private StateTable stateTable;
 	private Agent opponent;
+	// the reachable states and the moves between them, shared by every agent.
+	private StateGraph graph;
+	// measurements from the last call to initialize.
+	private TrainingStats stats;
+	// if true, initialize trains on a background thread, publishing a snapshot of the policy after each sweep, and
+	//  pickMove plays from the latest snapshot.
+	private boolean background;
+	private final AtomicReference<PolicySnapshot> snapshot = new AtomicReference<PolicySnapshot>();
+	// a table from an earlier training to start the next training from (see warmStart), or null.
+	private StateTable warmTable;
+	private int warmColdSweeps;
+	// the discount factor and rewards to learn with.
+	private LearningParams params = new LearningParams();
+	// the opponent's move probabilities, worked out ahead of time, or null to ask the opponent on every backup.
+	private TransitionModel model;
 
 	public PolicyItrAgent(){
-		r = new Random();
-		stateValues = new Hashtable<Integer, Double>();
-		statePolicy = new Hashtable<Integer, Integer>();
+		stateTable = new HashStateTable();
+		graph = StateGraph.get();
+	}
+
+	// Keep the state table somewhere other than the heap (see StateTable). This must be called before initialize.
+	public void setStateTable(StateTable table){
+		stateTable = table;
 	}
 	
+	// Start the next training from the values in a table left by an earlier training, rather than from
+	//  Consts.InitialValue. Policies are taken from the table as well, where they are legal moves. coldSweeps is
+	//  the number of sweeps the earlier training took from scratch, or 0 if it isn't known, and is used to report
+	//  the sweeps saved (see TrainingStats). This must be called before initialize, and applies to the next
+	//  training only.
+	public void warmStart(StateTable table, int coldSweeps){
+		warmTable = table;
+		warmColdSweeps = coldSweeps;
+	}
+
+	// Start the next training from another trained agent's values and policies.
+	public void warmStart(PolicyItrAgent trained){
+		warmStart(trained.stateTable, trained.stats.coldSweeps);
+	}
+
+	// Learn with the given discount factor and rewards rather than the defaults in Consts. This must be called
+	//  before initialize.
+	public void setLearningParams(LearningParams learningParams){
+		params = learningParams;
+	}
+	public LearningParams getLearningParams(){
+		return params;
+	}
+
+	// Read the opponent's move probabilities from a model of the opponent built ahead of time (see TransitionModel),
+	//  rather than asking the opponent. This must be called before initialize.
+	public void setTransitionModel(TransitionModel transitionModel){
+		model = transitionModel;
+	}
+
+	// Train in the background (see PolicySnapshot) rather than in initialize. This must be called before initialize.
+	public void setBackgroundTraining(boolean enabled){
+		background = enabled;
+	}
+
+	// the latest policy published by background training, or null if there isn't one yet.
+	public PolicySnapshot getSnapshot(){
+		return snapshot.get();
+	}
+
 	// initialize the agent. First, we explore the state space, then we perform policy iteration over that space.
 	public void initialize(Agent enemyAgent){
 		// current opponent required for Machine Learning model.
 		opponent = enemyAgent;
+		if(!background){
+			train();
+			return;
+		}
+		snapshot.set(null);
+		Thread trainer = new Thread(new Runnable(){
+			public void run(){
+				train();
+			}
+		}, getClass().getName() + " training");
+		trainer.setDaemon(true);
+		trainer.start();
+	}
+
+	// set up the value and policy tables and run policy iteration.
+	private void train(){
+		long start = System.nanoTime();
+		TableSetupEvent setup = null;
+		if(Counters.recording()){
+			setup = new TableSetupEvent();
+			setup.begin();
+		}
+		stats = new TrainingStats();
+		stats.expansionNanos = graph.getBuildNanos();
 		// initialize the state value and policy tables.
 		initStateSpace();
+		stats.endSetup(setup, getClass().getName(), stateTable.size(), start);
 		// teach the value iteration agent an optimal policy given the current opponent.
 		trainAgent();
+		stats.totalNanos = System.nanoTime() - start;
+		if(warmTable != null){
+			stats.warmStarted = true;
+			stats.coldSweeps = warmColdSweeps;
+			warmTable = null;
+		}
+		else
+			stats.coldSweeps = stats.sweeps;
+		if(background)
+			publish(true);
+	}
+
+	// return measurements from the last call to initialize.
+	public TrainingStats getTrainingStats(){
+		return stats;
 	}
 	
-	// initialize the value and policy tables. This requires fully expanding the game state space.
+	// initialize the value and policy tables, adding each reachable state from the state graph, starting from the
+	//  warm start table if there is one.
 	private void initStateSpace() {
-		Game newGame = new Game(this, opponent);		
-		expandStateSpace(newGame);
-	}
-
-	// recursively expand the game tree, exploring all possible moves.
-	private void expandStateSpace(Game game) {
-		int state = game.evaluateGameState();
-		// if key exists, we've expanded this subtree already. Returning now avoids unnecessary traversals.
-		if(stateValues.containsKey(genStateKey(game.getBoard()))){
-			return; 
-		}
-
-		Integer[] moves = game.possibleMoves();
-		int initPolicy = Consts.NoMove;
-		if(moves.length != 0)
-			initPolicy = moves[0];
-		
-		statePolicy.put(genStateKey(game.getBoard()), initPolicy);
-		stateValues.put(genStateKey(game.getBoard()), Consts.InitialValue);
-		
-		// if the game is still in progress, recurse down the game tree.
-		if(state == Consts.GameInProgress){
-			for (int nextMove : game.possibleMoves())
-				expandStateSpace(game.simulateMove(nextMove));
+		for(int i = 0; i < graph.size(); i++){
+			int key = graph.getKey(i);
+			// the initial policy is the first empty square, unless the warm start table has a legal move.
+			int empty = BitBoard.Full & ~(StateKey.xMask(key) | StateKey.oMask(key));
+			int policy = BitBoard.firstSquare(empty);
+			double value = Consts.InitialValue;
+			if(warmTable != null && warmTable.containsKey(key)){
+				int warmPolicy = warmTable.getPolicy(key);
+				if(warmPolicy >= 0 && warmPolicy < Consts.NumSquares && (empty & (1 << warmPolicy)) != 0)
+					policy = warmPolicy;
+				value = warmTable.getValue(key);
+			}
+			stateTable.putPolicy(key, policy);
+			stateTable.putValue(key, value);
 		}
 	}
 
@@ -90,25 +183,104 @@ public class PolicyItrAgent extends Agent {
 		int iterations = 0;
 		
 		boolean aPolicyChanged = true;
+		// the states (by StateGraph index) whose policy changed in the last improvement step.
+		ArrayList<Integer> changedStates = new ArrayList<Integer>();
 		// iterate algorithm until none of the policies in the table change between iterations.
 		while(aPolicyChanged && iterations < 25){
 			aPolicyChanged = false;
 			iterations++;
 
-			// Calculate the value of the current policy at each state, and update the value table.
-			evaluatePolicy(); // "evaluation step"
+			// Calculate the value of the current policy at each state, and update the value table. After the first
+			//  round, only the states affected by the last improvement need to be evaluated again.
+			if(iterations == 1)
+				evaluatePolicy(); // "evaluation step"
+			else
+				evaluateChanges(changedStates);
+			changedStates.clear();
 			
-			Enumeration<Integer> keys = statePolicy.keys();			
+			long improvementStart = System.nanoTime();
+			PolicyRoundEvent round = null;
+			if(Counters.recording()){
+				round = new PolicyRoundEvent();
+				round.begin();
+			}
+			int policiesChanged = 0;
+			Enumeration<Integer> keys = stateTable.keys();			
 			Integer key;
 			boolean thisPolicyChanged;
 			// iterate over all policies, calculating the optimal policy given the current value table.
 			while(keys.hasMoreElements()){
 				key = keys.nextElement();
 				thisPolicyChanged = updatePolicy(key);
-				if(thisPolicyChanged)
-					aPolicyChanged = true;				
+				if(thisPolicyChanged){
+					aPolicyChanged = true;
+					policiesChanged++;
+					changedStates.add(graph.indexOf(key));
+				}
 			}
+			stats.endPolicyRound(round, getClass().getName(), policiesChanged, improvementStart);
+		}
+	}
+
+	// Publish a snapshot of the current policy. The policy only changes between rounds of evaluation, but a snapshot
+	//  is published after every sweep so that the sweep count stays current.
+	private void publish(boolean converged){
+		snapshot.set(new PolicySnapshot(currentMoves(), stats.sweeps, converged));
+	}
+
+	// Freeze the trained agent into an immutable FrozenAgent that plays as it does. This must be called after
+	//  initialize and, when training in the background, once training has finished.
+	public FrozenAgent freeze(){
+		if(background){
+			PolicySnapshot latest = snapshot.get();
+			if(latest == null || !latest.isConverged())
+				throw new IllegalStateException("training has not finished");
 		}
+		return new FrozenAgent(currentMoves());
+	}
+
+	// the current policy in every state (by StateGraph index).
+	private byte[] currentMoves(){
+		byte[] moves = new byte[graph.size()];
+		for(int i = 0; i < graph.size(); i++)
+			moves[i] = (byte)(graph.isTerminal(i) ? Consts.NoMove : stateTable.getPolicy(graph.getKey(i)));
+		return moves;
+	}
+
+	// Retrain using the opponent moves observed since the last call, when the opponent is an OpponentModel. Rather
+	//  than starting training over, only the states whose backups use a changed estimate are revisited: the parents
+	//  of each state where the opponent model changed, and then, for every state whose value changes, the states two
+	//  moves earlier, whose backups use it. Each revisited state is evaluated under its current policy, improved,
+	//  and evaluated again if its policy changed. States are revisited deepest first, so each one is revisited
+	//  once, after everything it depends on.
+	public void adapt(){
+		if(!(opponent instanceof OpponentModel))
+			return;
+		PriorityQueue<Integer> pending = new PriorityQueue<Integer>(64, StateKey.DeepestFirst);
+		HashSet<Integer> queued = new HashSet<Integer>();
+		for(int changed : ((OpponentModel)opponent).takeChangedStates()){
+			for(int parent : StateKey.parents(changed))
+				queueBackup(parent, pending, queued);
+		}
+		while(!pending.isEmpty()){
+			Integer key = pending.poll();
+			double oldValue = stateTable.getValue(key);
+			updateValue(key);
+			if(updatePolicy(key))
+				updateValue(key);
+			if(stateTable.getValue(key) != oldValue){
+				for(int parent : StateKey.parents(key)){
+					for(int grandparent : StateKey.parents(parent))
+						queueBackup(grandparent, pending, queued);
+				}
+			}
+		}
+	}
+
+	// queue a state to be revisited by adapt, if it is in the value table and not queued already.
+	private void queueBackup(int key, PriorityQueue<Integer> pending, HashSet<Integer> queued){
+		if(stateTable.containsKey(key) && queued.add(key))
+			pending.add(key);
 	}
 
 	// evaluate the current policy and calculate the current value of the policy at each state.
@@ -119,23 +291,82 @@ public class PolicyItrAgent extends Agent {
 		// use value iteration for the current policy to determine the value of the current policy over all states.
 		while(deltaValue > maxDelta){
 
+			long sweepStart = System.nanoTime();
+			SweepEvent sweep = null;
+			if(Counters.recording()){
+				sweep = new SweepEvent();
+				sweep.begin();
+			}
 			deltaValue = 0.0;
 
-			Enumeration<Integer> keys = stateValues.keys();			
+			Enumeration<Integer> keys = stateTable.keys();			
 			Integer key;
 			Double oldValue, newValue;
 			
 			// iterate over all values in the stateValue table, as in Value Iteration.
 			while(keys.hasMoreElements()){
 				key = keys.nextElement();
-				oldValue = stateValues.get(key);
+				oldValue = stateTable.getValue(key);
 				updateValue(key); // update value
-				newValue = stateValues.get(key);
+				newValue = stateTable.getValue(key);
 				deltaValue = Math.max(Math.abs(oldValue-newValue), deltaValue); // track largest value change.
 			}	
+			stats.endSweep(sweep, getClass().getName(), deltaValue, stateTable.size(), sweepStart);
+			if(background)
+				publish(false);
 		}		
 	}
 
+	// Evaluate the policy again after an improvement step changed it in the given states (by StateGraph index).
+	//  evaluatePolicy sweeps until no value changes, which leaves every state's value exactly determined by the
+	//  values of the states after its move and the opponent's reply. Since only the changed states and the states
+	//  that read their values can end up different, it is enough to back those up again, once each, after the
+	//  states they read: the changed states, and then, for each state whose value changes, the states two moves
+	//  earlier. The graph numbers states so that later moves have higher indices, so backing up pending states
+	//  from the highest index down visits each one after everything it reads. The values, and so the next policy,
+	//  are the same as a full evaluation would give.
+	private void evaluateChanges(ArrayList<Integer> changedStates) {
+		long sweepStart = System.nanoTime();
+		SweepEvent sweep = null;
+		if(Counters.recording()){
+			sweep = new SweepEvent();
+			sweep.begin();
+		}
+		PriorityQueue<Integer> pending = new PriorityQueue<Integer>(Math.max(1, changedStates.size()),
+																	 Collections.reverseOrder());
+		boolean[] queued = new boolean[graph.size()];
+		for(int index : changedStates){
+			queued[index] = true;
+			pending.add(index);
+		}
+		double deltaValue = 0.0;
+		int backups = 0;
+		while(!pending.isEmpty()){
+			int index = pending.poll();
+			int key = graph.getKey(index);
+			double oldValue = stateTable.getValue(key);
+			updateValue(key);
+			backups++;
+			double newValue = stateTable.getValue(key);
+			if(newValue == oldValue)
+				continue;
+			deltaValue = Math.max(Math.abs(oldValue-newValue), deltaValue);
+			for(int p = 0; p < graph.getPredecessorCount(index); p++){
+				int parent = graph.getPredecessor(index, p);
+				for(int g = 0; g < graph.getPredecessorCount(parent); g++){
+					int grandparent = graph.getPredecessor(parent, g);
+					if(!queued[grandparent]){
+						queued[grandparent] = true;
+						pending.add(grandparent);
+					}
+				}
+			}
+		}
+		stats.endSweep(sweep, getClass().getName(), deltaValue, backups, sweepStart);
+		if(background)
+			publish(false);
+	}
+
 	// update value based on the reward for reaching the input state, and the expected rewared for successive states.
 	private void updateValue(Integer key) {		
 		// Create an instance of a game that matches the current key.
@@ -143,47 +374,40 @@ public class PolicyItrAgent extends Agent {
 
 		// execute the current policy
 		try {
-			game.executeMove(statePolicy.get(key));
+			game.executeMove(stateTable.getPolicy(key));
 		} catch (InvalidMoveException e1) {
 			// if the current policy executes an invalid move, return now.
-			stateValues.put(key, (double)Consts.RewardOther);
+			stateTable.putValue(key, params.rewardOther);
 			return;
 		}
 		// if we've reached a terminal state,  return the reward for reaching that state.
 		if(game.evaluateGameState() != Consts.GameInProgress){
-			stateValues.put(key, (double)getReward(game));
+			stateTable.putValue(key, getReward(game));
 			return;
 		}
 		
-		// Get all successor states.
-		ArrayList<TransitionPair> successorStates = opponent.getSuccessorStates(game);
-		
-		Double currentValue = (double)getReward(game);
+		Double currentValue = getReward(game);
 		
 		// sum expected value over the successor states, weighted by each states transition probability.
-		for(TransitionPair successor : successorStates){
-			try{
-				currentValue += Consts.DiscountFactor * getValue(successor.game) * successor.probability;
-			} catch(InvalidMoveException e){
-				System.out.println(e.getMessage());
-				e.printStackTrace();
-			}
-		}
+		currentValue = addReplyValues(currentValue, game);
 		// update the value under the current policy to the calculated value.
-		stateValues.put(key, currentValue);
+		stateTable.putValue(key, currentValue);
 	}
 
 	// Determine the policy that currently yields the highest value.
 	private boolean updatePolicy(Integer key) {
+		// This walks the moves with Game objects rather than the state graph. The graph has no moves from a finished
+		//  game, but updateValue still plays the policy's square on a finished board, and that square is improved
+		//  here along with the rest.
 		Game game = gameFromKey(key);
-		int currentPolicy = statePolicy.get(key);
+		int currentPolicy = stateTable.getPolicy(key);
 		
 		int updatedPolicy = currentPolicy;
-		Double currentValue = stateValues.get(key);
+		Double currentValue = stateTable.getValue(key);
 		// iterate over all possible moves, determine the best policy.
 		for(int move : game.possibleMoves()){
 			Game nextTurn = game.simulateMove(move);
-			Double moveValue = (double)getReward(nextTurn);
+			Double moveValue = getReward(nextTurn);
 
 			if(nextTurn.evaluateGameState() != Consts.GameInProgress){
 				if(moveValue > currentValue){
@@ -192,25 +416,40 @@ public class PolicyItrAgent extends Agent {
 				}
 				continue;
 			}
-			for(TransitionPair successor : opponent.getSuccessorStates(nextTurn)){
-				try{
-					moveValue += Consts.DiscountFactor * getValue(successor.game) * successor.probability;
-				} catch(InvalidMoveException e){
-					System.out.println(e.getMessage());
-					e.printStackTrace();
-				}	
-			}
+			moveValue = addReplyValues(moveValue, nextTurn);
 			if(moveValue > currentValue){
 				currentValue = moveValue;
 				updatedPolicy = move;
 			}
 		}
-		// Update statePolicy table
-		statePolicy.put(key, updatedPolicy);
+		// Update policy table
+		stateTable.putPolicy(key, updatedPolicy);
 		return (currentPolicy != updatedPolicy); // true if something changed.
 	}
 	
 
+	// Add the discounted values of the opponent's replies in a game to 'value', each weighted by its transition
+	//  probability. The probabilities come from the transition model if there is one, and from the opponent
+	//  otherwise.
+	private double addReplyValues(double value, Game game){
+		if(model != null){
+			int index = graph.indexOf(StateKey.encode(game.getBoard()));
+			for(int n = 0; n < model.getSuccessorCount(index); n++)
+				value += params.discountFactor * stateTable.getValue(graph.getKey(model.getSuccessor(index, n))) *
+						 model.getProbability(index, n);
+			return value;
+		}
+		for(TransitionPair successor : opponent.getSuccessorStates(game)){
+			try{
+				value += params.discountFactor * getValue(successor.game) * successor.probability;
+			} catch(InvalidMoveException e){
+				System.out.println(e.getMessage());
+				e.printStackTrace();
+			}
+		}
+		return value;
+	}
+
 	// print the current game state.
 	public void printState(int[] board){
 		
@@ -230,51 +469,49 @@ public class PolicyItrAgent extends Agent {
 		System.out.println();
 	}
 
-	// to pick a move, simply follow the action in the converged statePolicy table.
+	// to pick a move, simply follow the action in the converged policy table.
 	public int pickMove(Game game) {
-		return statePolicy.get(genStateKey(game.getBoard()));
+		// while training in the background, play from the latest snapshot, or at random until there is one.
+		if(background){
+			PolicySnapshot latest = snapshot.get();
+			if(latest == null){
+				Integer[] moves = game.possibleMoves();
+				return moves[random().nextInt(moves.length)];
+			}
+			return latest.getMove(game.getBoard());
+		}
+		return stateTable.getPolicy(genStateKey(game.getBoard()));
 	}
 	
 	// Given a game board, return the current value for the state of that Game. 
 	private Double getValue(Game game) throws InvalidMoveException {
 		int key = genStateKey(game.getBoard());
-		if(stateValues.containsKey(key))
-			return stateValues.get(key);
+		if(stateTable.containsKey(key))
+			return stateTable.getValue(key);
 		else{
-			throw new InvalidMoveException("value did not exist in stateValues table!");
+			throw new InvalidMoveException("value did not exist in state table!");
 		}
 	} 
 
 	/* 
 	 * This describes the reward function for an action based on the resulting game state.
-	 * A winning move provides a +10 reward, while a losing move provides a -10 reward.
+	 * By default (see LearningParams) a winning move provides a +10 reward, while a losing move provides a -10 reward.
 	 * A move that causes a tie results in a +1 move, and any other move gives a -1 reward.
 	 */
-	private int getReward(Game game) {
-		int reward;
-		switch (game.evaluateGameState()){
-			case Consts.GameInProgress:	reward = Consts.RewardInProgress; 	break;
-			case Consts.GameWon:		reward = Consts.RewardWon; 			break;
-			case Consts.GameLost:		reward = Consts.RewardLost;			break;
-			case Consts.GameTied:		reward = Consts.RewardTied; 		break;
-			default:					reward = Consts.RewardOther; 		break;
-		}
-		return reward;
+	private double getReward(Game game) {
+		return params.getReward(game.evaluateGameState());
 	}
 
 	// This function generates a unique integer representation of the given game board. 
 	//  It interprets a Game's "board" array as the digits of a ternary (base three) number and returns 
 	//  the decimal representation of that number. This is used to calculate game state hash values.
-	private int genStateKey(int[] board){
-		int hashVal = 0;
-		for(int i=0; i<board.length; i++){
-			hashVal += board[i]*(Math.pow(3,i));
-		}
-		return hashVal;	
+	//  (Package-private, along with gameFromKey, so that the benchmarks can reach them.)
+	int genStateKey(int[] board){
+		return StateKey.encode(board);
 	}
 	// Given a gameState hash key, create a game with equivalent state. Performs the reverse action described
 	//  by the genStateKey method.
-	private Game gameFromKey(Integer key) {
+	Game gameFromKey(Integer key) {
 		// convert ternary key to game board representation. Create a new game with that board.
 		int[] board = new int[9];
 		int xCount = 0, oCount = 0;
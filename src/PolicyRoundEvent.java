@@ -0,0 +1,34 @@
+/*
+ * Tic Tac Toe A simple machine learning simulator.
+ *
+ * Class: PolicyRoundEvent
+ *
+ * A JDK Flight Recorder event covering one policy improvement round of PolicyItrAgent.
+ *
+ * Author: 	Toby Waite
+ * Contact: toby.waite@gmail.com
+ * Updated: November 16th, 2010.
+ */
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("tictactoe.PolicyRound")
+@Label("Policy Improvement Round")
+@Category({"Tic Tac Toe", "Training"})
+@Description("One policy improvement step of policy iteration")
+public class PolicyRoundEvent extends Event {
+
+	@Label("Agent")
+	public String agent;
+
+	@Label("Round")
+	public int round;
+
+	@Label("Policies Changed")
+	@Description("Number of states whose action changed in this round")
+	public int policiesChanged;
+}
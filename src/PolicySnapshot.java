@@ -0,0 +1,44 @@
+/*
+ * Tic Tac Toe A simple machine learning simulator.
+ *
+ * Class: PolicySnapshot
+ *
+ * An immutable copy of a learning agent's policy, taken while it trains in the background: the move the agent would
+ * make in every reachable state (indexed as in StateGraph), how many sweeps training had done when it was taken,
+ * and whether training had finished. A training thread publishes a new snapshot after each sweep, and the agent
+ * plays its games from the latest one, so games can be played while training is still converging.
+ *
+ * Author: 	Toby Waite
+ * Contact: toby.waite@gmail.com
+ * Updated: November 16th, 2010.
+ */
+
+public final class PolicySnapshot {
+
+	private final byte[] moves;
+	private final int sweeps;
+	private final boolean converged;
+
+	// The snapshot takes ownership of moves, which must not be changed afterwards.
+	public PolicySnapshot(byte[] moves, int sweeps, boolean converged){
+		this.moves = moves;
+		this.sweeps = sweeps;
+		this.converged = converged;
+	}
+
+	// the move for a game board, or Consts.NoMove if the board isn't a reachable state in progress.
+	public int getMove(int[] board){
+		int index = StateGraph.get().indexOf(StateKey.encode(board));
+		return (index < 0) ? Consts.NoMove : moves[index];
+	}
+
+	// the number of sweeps training had done when the snapshot was taken.
+	public int getSweeps(){
+		return sweeps;
+	}
+
+	// true if training had finished, so this is the policy the agent will keep.
+	public boolean isConverged(){
+		return converged;
+	}
+}
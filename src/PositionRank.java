@@ -0,0 +1,172 @@
+/*
+ * Tic Tac Toe A simple machine learning simulator.
+ *
+ * Class: PositionRank
+ *
+ * Numbers every legal board position with consecutive integers, so that tables indexed by position can be dense.
+ * A board is legal here if X has as many pieces as O, or one more. Of the 3^9 = 19,683 ternary state keys, only
+ * 6046 are legal boards (and 5478 of those can be reached in a game, because play stops once someone has a line).
+ *
+ * Positions are grouped by piece counts, X's count then O's, with each group's ranks following on from the last.
+ * Within a group of boards with x X pieces and o O pieces there are C(n, x) * C(n - x, o) boards, on n squares:
+ *
+ *   rank = offset(x, o) + rank of X's squares among all n squares * C(n - x, o)
+ *                       + rank of O's squares among the n - x squares X doesn't hold
+ *
+ * where a set of k squares c1 < c2 < ... < ck is ranked by the combinatorial number system as C(c1, 1) +
+ * C(c2, 2) + ... + C(ck, k). O's squares are first renumbered by their position among the squares left over.
+ *
+ * Boards are given as X and O bit masks (see BitBoard). unrank packs the masks into one int, with X's squares in
+ * the low NumSquares bits and O's above them.
+ *
+ * Author: 	Toby Waite
+ * Contact: toby.waite@gmail.com
+ * Updated: November 16th, 2010.
+ */
+
+public final class PositionRank {
+
+	private static final int N = Consts.NumSquares;
+
+	// Choose[n][k] is the binomial coefficient C(n, k), or zero if k > n.
+	private static final int[][] Choose = new int[N + 1][N + 1];
+	// Offset[x][o] is the rank of the first board with x X pieces and o O pieces, or -1 if that isn't legal.
+	private static final int[][] Offset = new int[N + 2][N + 2];
+	// the number of legal positions.
+	private static final int Size;
+
+	static {
+		for(int n = 0; n <= N; n++){
+			Choose[n][0] = 1;
+			for(int k = 1; k <= n; k++)
+				Choose[n][k] = Choose[n-1][k-1] + ((k <= n - 1) ? Choose[n-1][k] : 0);
+		}
+		int next = 0;
+		for(int x = 0; x <= N + 1; x++){
+			for(int o = 0; o <= N + 1; o++){
+				if(isLegal(x, o)){
+					Offset[x][o] = next;
+					next += count(x, o);
+				}
+				else
+					Offset[x][o] = -1;
+			}
+		}
+		Size = next;
+	}
+
+	private PositionRank(){}
+
+	// the number of legal positions, one more than the largest rank.
+	public static int size(){
+		return Size;
+	}
+
+	// true if a board can have x X pieces and o O pieces: X moves first, and the players take turns.
+	public static boolean isLegal(int x, int o){
+		return (x == o || x == o + 1) && x + o <= N;
+	}
+
+	// the number of boards with x X pieces and o O pieces.
+	public static int count(int x, int o){
+		return Choose[N][x] * Choose[N - x][o];
+	}
+
+	// the rank of the board with the given X and O masks. The masks must not overlap, and the piece counts must be
+	//  legal.
+	public static int rank(int xMask, int oMask){
+		int x = Integer.bitCount(xMask), o = Integer.bitCount(oMask);
+		return Offset[x][o] + rankSet(xMask) * Choose[N - x][o] + rankSet(compress(oMask, xMask));
+	}
+
+	// the rank of a game board.
+	public static int rank(int[] board){
+		return rank(BitBoard.xMask(board), BitBoard.oMask(board));
+	}
+
+	// The board with a given rank, as X's mask in the low NumSquares bits and O's mask above them.
+	public static int unrank(int rank){
+		// find the group of boards with the right piece counts. There are only a handful of them.
+		int x = 0, o = 0;
+		search:
+		for(x = 0; x <= N; x++){
+			for(o = x - 1; o <= x; o++){
+				if(o >= 0 && isLegal(x, o) && rank >= Offset[x][o] && rank < Offset[x][o] + count(x, o))
+					break search;
+			}
+		}
+		int within = rank - Offset[x][o];
+		int oCombinations = Choose[N - x][o];
+		int xMask = unrankSet(within / oCombinations, x);
+		int oMask = expand(unrankSet(within % oCombinations, o), xMask);
+		return xMask | (oMask << N);
+	}
+
+	// the X and O masks of a board packed by unrank.
+	public static int xMaskOf(int packed){
+		return packed & BitBoard.Full;
+	}
+	public static int oMaskOf(int packed){
+		return packed >>> N;
+	}
+
+	// the game board with a given rank.
+	public static int[] unrankBoard(int rank){
+		int packed = unrank(rank);
+		int[] board = new int[N];
+		for(int i = 0; i < N; i++){
+			if((xMaskOf(packed) & (1 << i)) != 0)
+				board[i] = Consts.MoveX;
+			else if((oMaskOf(packed) & (1 << i)) != 0)
+				board[i] = Consts.MoveO;
+		}
+		return board;
+	}
+
+	// the combinatorial number system rank of a set of squares.
+	private static int rankSet(int mask){
+		int rank = 0;
+		for(int k = 1; mask != 0; k++){
+			rank += Choose[Integer.numberOfTrailingZeros(mask)][k];
+			mask &= mask - 1;
+		}
+		return rank;
+	}
+
+	// the set of k squares with the given rank, taking the largest square first.
+	private static int unrankSet(int rank, int k){
+		int mask = 0;
+		int c = N;
+		for(; k > 0; k--){
+			do
+				c--;
+			while(Choose[c][k] > rank);
+			rank -= Choose[c][k];
+			mask |= 1 << c;
+		}
+		return mask;
+	}
+
+	// renumber the squares in mask by their position among the squares not in 'taken'.
+	private static int compress(int mask, int taken){
+		int result = 0;
+		for(int bits = mask; bits != 0; bits &= bits - 1){
+			int square = Integer.numberOfTrailingZeros(bits);
+			result |= 1 << (square - Integer.bitCount(taken & ((1 << square) - 1)));
+		}
+		return result;
+	}
+
+	// the inverse of compress: map positions among the squares not in 'taken' back to squares.
+	private static int expand(int mask, int taken){
+		int result = 0;
+		int free = BitBoard.Full & ~taken;
+		for(int position = 0; free != 0; position++){
+			int square = Integer.numberOfTrailingZeros(free);
+			if((mask & (1 << position)) != 0)
+				result |= 1 << square;
+			free &= free - 1;
+		}
+		return result;
+	}
+}
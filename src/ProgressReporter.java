@@ -0,0 +1,136 @@
+/*
+ * Tic Tac Toe A simple machine learning simulator.
+ *
+ * Class: ProgressReporter
+ *
+ * Reports the progress of a long match while it is being played. A background thread wakes up at a fixed interval
+ * and appends a snapshot to a file: the time, games completed, games per second since the last snapshot, the
+ * running win, draw and loss rates, and heap usage. Files ending in .csv are written as CSV with a header line,
+ * and anything else as JSON lines, one object per snapshot. A last snapshot is written when the reporter is closed.
+ *
+ * The game loop calls gameFinished after each game. The counts have a single writer (the game loop) and are
+ * published with lazySet, which is an ordinary store on most hardware, so the game loop never locks or waits for
+ * the reporter. The reporter may see a snapshot that is a game or two out of step between the counts, which
+ * doesn't matter for a progress report.
+ *
+ * Author: 	Toby Waite
+ * Contact: toby.waite@gmail.com
+ * Updated: November 16th, 2010.
+ */
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ProgressReporter implements Runnable {
+
+	public static final int DefaultIntervalSeconds = 10;
+
+	private PrintWriter out;
+	private boolean csv;
+	private long intervalMillis;
+	private long totalGames;
+	private Thread thread;
+
+	// written by the game loop only.
+	private final AtomicLong games = new AtomicLong();
+	private final AtomicLong wins = new AtomicLong();
+	private final AtomicLong ties = new AtomicLong();
+	private final AtomicLong losses = new AtomicLong();
+
+	// used by the reporting thread only.
+	private long startNanos;
+	private long lastNanos;
+	private long lastGames;
+
+	// Open the progress file, appending to it if it exists. totalGames is the length of the match.
+	public ProgressReporter(String fileName, int intervalSeconds, long totalGames) throws IOException {
+		boolean newFile = (new File(fileName).length() == 0);
+		out = new PrintWriter(new FileWriter(fileName, true));
+		csv = fileName.toLowerCase().endsWith(".csv");
+		intervalMillis = 1000L * intervalSeconds;
+		this.totalGames = totalGames;
+		if(csv && newFile)
+			out.println("timestamp,elapsedSeconds,games,totalGames,gamesPerSecond,winRate,drawRate,lossRate," +
+						"heapUsedBytes,heapMaxBytes");
+	}
+
+	// start reporting in the background.
+	public void start(){
+		startNanos = lastNanos = System.nanoTime();
+		thread = new Thread(this, "ProgressReporter");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	// Count a finished game. Only the game loop may call this.
+	public void gameFinished(int gameState){
+		switch(gameState){
+			case Consts.GameWon:	wins.lazySet(wins.get() + 1); break;
+			case Consts.GameTied:	ties.lazySet(ties.get() + 1); break;
+			case Consts.GameLost:	losses.lazySet(losses.get() + 1); break;
+		}
+		games.lazySet(games.get() + 1);
+	}
+
+	public void run(){
+		try{
+			while(!Thread.currentThread().isInterrupted()){
+				Thread.sleep(intervalMillis);
+				writeSnapshot();
+			}
+		}
+		catch(InterruptedException e){
+			// closed.
+		}
+	}
+
+	// Stop the reporting thread, write a final snapshot and close the file.
+	public void close(){
+		thread.interrupt();
+		try{
+			thread.join();
+		}
+		catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+		}
+		writeSnapshot();
+		out.close();
+	}
+
+	private void writeSnapshot(){
+		long now = System.nanoTime();
+		long gamesNow = games.get();
+		long w = wins.get(), t = ties.get(), l = losses.get();
+		double seconds = Math.max(1, now - lastNanos) / 1e9;
+		double gamesPerSecond = (gamesNow - lastGames) / seconds;
+		lastNanos = now;
+		lastGames = gamesNow;
+
+		long finished = Math.max(1, w + t + l);
+		Runtime runtime = Runtime.getRuntime();
+		long heapUsed = runtime.totalMemory() - runtime.freeMemory();
+		long timestamp = System.currentTimeMillis();
+		String elapsed = String.format(Locale.ROOT, "%.3f", (now - startNanos) / 1e9);
+
+		if(csv)
+			out.println(timestamp + "," + elapsed + "," + gamesNow + "," + totalGames + "," +
+						String.format(Locale.ROOT, "%.1f", gamesPerSecond) + "," + rate(w, finished) + "," +
+						rate(t, finished) + "," + rate(l, finished) + "," + heapUsed + "," + runtime.maxMemory());
+		else
+			out.println("{\"timestamp\": " + timestamp + ", \"elapsedSeconds\": " + elapsed + ", \"games\": " +
+						gamesNow + ", \"totalGames\": " + totalGames + ", \"gamesPerSecond\": " +
+						String.format(Locale.ROOT, "%.1f", gamesPerSecond) + ", \"winRate\": " + rate(w, finished) +
+						", \"drawRate\": " + rate(t, finished) + ", \"lossRate\": " + rate(l, finished) +
+						", \"heapUsedBytes\": " + heapUsed + ", \"heapMaxBytes\": " + runtime.maxMemory() + "}");
+		// flush so that tools tailing the file see each snapshot as soon as it is written.
+		out.flush();
+	}
+
+	private static String rate(long count, long total){
+		return String.format(Locale.ROOT, "%.5f", count / (double)total);
+	}
+}
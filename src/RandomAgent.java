@@ -12,14 +12,8 @@
  * Date:	November 5th, 2010
  */
 
-import java.util.Random;
-
 public abstract class RandomAgent extends Agent {
 	
-	public RandomAgent(){
-		r = new Random();
-	}
-	
 	public void initialize(Agent opponent){
 		// Do nothing. Random Agents need no initialization.
 	}
@@ -32,7 +26,7 @@ public abstract class RandomAgent extends Agent {
 
 	protected int pickRandomMove(Game game){
 		// set selector to a random value between 0 and the number of empty squares to select one of the empty squares.
-		int selector = r.nextInt(Consts.NumSquares-game.getTurnsElapsed());   
+		int selector = random().nextInt(Consts.NumSquares-game.getTurnsElapsed());   
 		int selectedMove = 0;
 		
 		// iterate over empty squares. Return the empty square that corresponds to selector.
@@ -49,36 +43,66 @@ public abstract class RandomAgent extends Agent {
 	}
 	
 	// A defensive move is a move that would prevent an opponent from winning. This detects a defensive move
-	//  on the current game board, or returns Consts.NoMove if one cannot be found. 
+	//  on the current game board, or returns Consts.NoMove if one cannot be found. When several squares block,
+	//  the lowest numbered one is picked.
+	//  These used to place the other side's piece on each square and look for a lost game, which only ever finds
+	//  a block when this agent is playing X, and the threat tables are read the same way to keep that behaviour.
 	protected int pickDefensiveMove(Game game) {
-		int moveType = (game.getNextMove() == Consts.MoveX)? Consts.MoveO : Consts.MoveX;
-		// check for blocking moves at each spot. If one is found, return that move.
-		for(int move=0; move<Consts.NumSquares; move++){
-			if(game.simulateMove(move, moveType).evaluateGameState() == Consts.GameLost)
-				return move;
-		}
-		return Consts.NoMove; // if no blocking moves are found, return NoMove to indicate that no moves were found.
+		if(game.getNextMove() != Consts.MoveX)
+			return Consts.NoMove;
+		return BitBoard.firstSquare(ThreatTables.blockingSquares(game.getStateKey(), Consts.MoveX));
 	}
 	
 	// An aggressive move is a move that would allow the agent to win the game. This detects an aggressive move
-	//  on the current game board, or returns Consts.NoMove if one cannot be found. 
+	//  on the current game board, or returns Consts.NoMove if one cannot be found. As above, the old scan looked
+	//  for a won game, which is a win for X, so winning moves are only found when this agent is playing X.
 	protected int pickAggressiveMove(Game game) {
-		int moveType = (game.getNextMove() == Consts.MoveO)? Consts.MoveO : Consts.MoveX;
-		// Check for winning moves at each spot. If one is found, return that move.
-		for(int move=0; move<Consts.NumSquares; move++){
-			if(game.simulateMove(move, moveType).evaluateGameState() == Consts.GameWon)
-				return move;
-		}
-		return Consts.NoMove; // if no winning moves are found, return NoMove to indicate that no moves were found.
+		if(game.getNextMove() != Consts.MoveX)
+			return Consts.NoMove;
+		return BitBoard.firstSquare(ThreatTables.winningSquares(game.getStateKey(), Consts.MoveX));
 	}
 		
 	// Allows an agent to select a move with a certain probability. The input 'move' is selected with a probability
 	//  of one-in-'odds', and a random move is selected otherwise.
 	protected int selectMoveOrRandom(int move, int odds, Game game){
 		// pick a random move with a 1 in odds chance, otherwise return move.
-		if (r.nextInt(odds)==0)
+		if (random().nextInt(odds)==0)
 			return pickRandomMove(game);
 		else
 			return move;
 	}
+
+	// Batched form of pickMove, used by BatchSimulator. Picks a move for each of the first 'count' games, whose
+	//  boards are given as masks of the squares held by X and by O (see BitBoard). Every game in a batch has the
+	//  same side to move, and the chosen squares are written to 'moves'.
+	public abstract void pickMoves(int[] xMasks, int[] oMasks, int count, boolean xToMove, int[] moves);
+
+	// Bit mask versions of the move selection helpers above. Each makes the same choice, with the same
+	//  probabilities, as its Game based counterpart.
+	protected int pickRandomMove(int empty){
+		return BitBoard.nthSquare(empty, random().nextInt(Integer.bitCount(empty)));
+	}
+
+	// pickDefensiveMove places the other side's piece and looks for a lost game, so it only ever finds a block
+	//  when this agent is playing X.
+	protected int pickDefensiveMove(int xMask, int oMask, boolean xToMove){
+		if(!xToMove)
+			return Consts.NoMove;
+		return BitBoard.firstSquare(BitBoard.completingSquares(oMask, BitBoard.Full & ~(xMask | oMask)));
+	}
+
+	// pickAggressiveMove looks for a won game, which is a win for X, so it only ever finds a winning move when
+	//  this agent is playing X.
+	protected int pickAggressiveMove(int xMask, int oMask, boolean xToMove){
+		if(!xToMove)
+			return Consts.NoMove;
+		return BitBoard.firstSquare(BitBoard.completingSquares(xMask, BitBoard.Full & ~(xMask | oMask)));
+	}
+
+	protected int selectMoveOrRandom(int move, int odds, int empty){
+		if (random().nextInt(odds)==0)
+			return pickRandomMove(empty);
+		else
+			return move;
+	}
 }
\ No newline at end of file
@@ -0,0 +1,43 @@
+/*
+ * Tic Tac Toe A simple machine learning simulator.
+ *
+ * Class: RuleAgent
+ *
+ * A scripted opponent that plays by a list of rules (see MoveRules), such as "win 0.8 > block 0.8 > random", rather
+ * than by hand-written code. Moves are drawn from the rules' compiled probability table, and the learning agents
+ * are given the same table through getSuccessorStates, so the two can't disagree. Play it with opponent type 8 and
+ * -rules.
+ *
+ * Author: 	Toby Waite
+ * Contact: toby.waite@gmail.com
+ * Updated: November 16th, 2010.
+ */
+
+import java.util.ArrayList;
+
+public class RuleAgent extends Agent {
+
+	private final MoveRules rules;
+
+	public RuleAgent(MoveRules moveRules){
+		rules = moveRules;
+	}
+
+	public MoveRules getRules(){
+		return rules;
+	}
+
+	public void initialize(Agent opponent){
+		// Do nothing. The rules were compiled when they were parsed.
+	}
+
+	// draw a move from the rules' probabilities for the current board.
+	public int pickMove(Game game){
+		return rules.sampleMove(game.getStateKey(), random());
+	}
+
+	// the moves the rules make from a board, with their probabilities.
+	public ArrayList<TransitionPair> getSuccessorStates(Game game){
+		return rules.getSuccessorStates(game);
+	}
+}
@@ -0,0 +1,37 @@
+/*
+ * Tic Tac Toe A simple machine learning simulator.
+ *
+ * Class: ScalarWinEvaluator
+ *
+ * Checks one board at a time using the BitBoard win table. This is the fallback used when the Vector API is not
+ * available.
+ *
+ * Author: 	Toby Waite
+ * Contact: toby.waite@gmail.com
+ * Updated: November 16th, 2010.
+ */
+
+public class ScalarWinEvaluator extends WinEvaluator {
+
+	public void evaluate(int[] xMasks, int[] oMasks, int count, int[] states){
+		evaluateRange(xMasks, oMasks, 0, count, states);
+	}
+
+	// evaluate boards 'from' (inclusive) to 'to' (exclusive).
+	static void evaluateRange(int[] xMasks, int[] oMasks, int from, int to, int[] states){
+		for(int i = from; i < to; i++){
+			if(BitBoard.hasLine(xMasks[i]))
+				states[i] = Consts.GameWon;
+			else if(BitBoard.hasLine(oMasks[i]))
+				states[i] = Consts.GameLost;
+			else if((xMasks[i] | oMasks[i]) == BitBoard.Full)
+				states[i] = Consts.GameTied;
+			else
+				states[i] = Consts.GameInProgress;
+		}
+	}
+
+	public String getName(){
+		return "scalar";
+	}
+}
@@ -0,0 +1,163 @@
+/*
+ * Tic Tac Toe A simple machine learning simulator.
+ *
+ * Class: ShardCoordinator
+ *
+ * Splits a match across several worker processes and merges their results. Each worker is a separate JVM running
+ * an ordinary match with the -shard option: it trains its own agent, plays its slice of the games from its own seed
+ * (see ShardResult), and prints its results as a single line, which the coordinator reads from the worker's output.
+ * Workers share nothing, so the same match can equally be run by starting workers by hand, on any number of
+ * machines, with -results writing each one's line to a file, and the files merged afterwards:
+ *
+ *   java TicTacToe shards <Workers> <AgentType> <NumberOfGames> <OpponentType> [Options]
+ *   java TicTacToe 1 1000000 4 -seed 5 -shard 2/8 -results part2.txt     (on each machine, for shards 0 to 7)
+ *   java TicTacToe merge part*.txt
+ *
+ * Merged results are printed in the same form as a match played in one process. A match is repeatable given its
+ * seed and number of shards; without -seed, the coordinator picks a seed and prints it.
+ *
+ * Author: 	Toby Waite
+ * Contact: toby.waite@gmail.com
+ * Updated: November 16th, 2010.
+ */
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+public class ShardCoordinator {
+
+	// options that name a file, which the workers would all write to at once.
+	private static final String[] FileOptions = {"-log", "-progress", "-table", "-results", "-shard"};
+
+	public static void main(String[] args) {
+		try{
+			if(args.length > 0 && args[0].equals("merge"))
+				merge(Arrays.copyOfRange(args, 1, args.length));
+			else
+				coordinate(Arrays.copyOfRange(args, (args.length > 0 && args[0].equals("shards")) ? 1 : 0, args.length));
+		}
+		catch(ParameterException e){
+			System.out.println("Parameter Error: " + e.getMessage());
+			System.out.println("Usage: java TicTacToe shards <Workers> <AgentType> <NumberOfGames> <OpponentType> [Options]");
+			System.out.println("       java TicTacToe merge <ResultsFile>...");
+			System.exit(1);
+		}
+		catch(IOException e){
+			System.out.println("Could not read shard results: " + e.getMessage());
+			System.exit(1);
+		}
+	}
+
+	// Merge result files written by workers with -results, and show the results of the whole match.
+	private static void merge(String[] files) throws ParameterException, IOException {
+		if(files.length == 0)
+			throw new ParameterException("No results files given");
+		ArrayList<ShardResult> shards = new ArrayList<ShardResult>();
+		for(String file : files){
+			BufferedReader in = new BufferedReader(new FileReader(file));
+			try{
+				String line;
+				while((line = in.readLine()) != null){
+					ShardResult result = ShardResult.parse(line);
+					if(result != null)
+						shards.add(result);
+				}
+			}
+			finally{
+				in.close();
+			}
+		}
+		show(ShardResult.merge(shards), shards);
+	}
+
+	// Start one worker per shard, wait for them all, and merge the result lines they print.
+	private static void coordinate(String[] args) throws ParameterException, IOException {
+		if(args.length < 4)
+			throw new ParameterException("Not enough parameters");
+		int workers;
+		try{
+			workers = Integer.parseInt(args[0]);
+			Integer.parseInt(args[1]);
+			Integer.parseInt(args[2]);
+			Integer.parseInt(args[3]);
+		} catch(NumberFormatException e){
+			throw new ParameterException("Workers, agent, number of games and opponent must be integers");
+		}
+		if(workers < 1)
+			throw new ParameterException("There must be at least one worker");
+
+		// every worker plays the same match, apart from its shard, so a seed is always given.
+		ArrayList<String> options = new ArrayList<String>();
+		String seed = null;
+		for(int i = 4; i < args.length; i++){
+			if(args[i].equals("-seed") && i + 1 < args.length){
+				seed = args[++i];
+				continue;
+			}
+			if(Arrays.asList(FileOptions).contains(args[i]))
+				throw new ParameterException(args[i] + " can't be used in a sharded match");
+			options.add(args[i]);
+		}
+		if(seed == null){
+			seed = Long.toString(new Random().nextLong());
+			System.out.println("Match seed: " + seed);
+		}
+
+		long start = System.nanoTime();
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		Process[] processes = new Process[workers];
+		for(int shard = 0; shard < workers; shard++){
+			ArrayList<String> command = new ArrayList<String>(Arrays.asList(java, "-cp",
+				System.getProperty("java.class.path"), "TicTacToe", args[1], args[2], args[3]));
+			command.addAll(options);
+			command.addAll(Arrays.asList("-seed", seed, "-shard", shard + "/" + workers, "-results", "-"));
+			processes[shard] = new ProcessBuilder(command).redirectErrorStream(true).start();
+		}
+
+		// Read every worker's output to the end. Workers print little besides their result line, so reading them
+		//  one after another doesn't hold any of them up.
+		ArrayList<ShardResult> shards = new ArrayList<ShardResult>();
+		for(int shard = 0; shard < workers; shard++){
+			BufferedReader in = new BufferedReader(new InputStreamReader(processes[shard].getInputStream()));
+			ArrayList<String> output = new ArrayList<String>();
+			ShardResult result = null;
+			String line;
+			while((line = in.readLine()) != null){
+				ShardResult parsed = ShardResult.parse(line);
+				if(parsed != null)
+					result = parsed;
+				else
+					output.add(line);
+			}
+			in.close();
+			int exitCode;
+			try{
+				exitCode = processes[shard].waitFor();
+			} catch(InterruptedException e){
+				throw new IOException("interrupted waiting for worker " + shard);
+			}
+			if(exitCode != 0 || result == null){
+				for(String outputLine : output)
+					System.out.println("worker " + shard + ": " + outputLine);
+				throw new IOException("worker " + shard + " failed (exit code " + exitCode + ")");
+			}
+			shards.add(result);
+		}
+		show(ShardResult.merge(shards), shards);
+		System.out.println(String.format("%d workers in %.1fs", workers, (System.nanoTime() - start) / 1e9));
+	}
+
+	// print each shard, then the merged results as a single match would.
+	private static void show(ShardResult merged, ArrayList<ShardResult> shards){
+		for(ShardResult s : shards)
+			System.out.println(String.format("Shard %d/%d: %d games in %dms, won %d, tied %d, lost %d", s.shard,
+											 s.shardCount, s.games, s.millis, s.wins, s.ties, s.losses));
+		TicTacToe.showMatchResults(merged.wins, merged.ties, merged.losses);
+	}
+}
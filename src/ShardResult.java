@@ -0,0 +1,128 @@
+/*
+ * Tic Tac Toe A simple machine learning simulator.
+ *
+ * Class: ShardResult
+ *
+ * A container class holding the results of one shard of a match: a slice of its games, played by a worker process
+ * of its own (see ShardCoordinator, and the -shard option of TicTacToe). A shard result is written as a single
+ * line of text, so results can be sent down a pipe or collected in files from any number of machines, and any set
+ * of shards covering a match can be merged into the results of the whole match.
+ *
+ * Each shard plays from its own seed, drawn from the match seed, so a sharded match is repeatable, and no two shards
+ * play the same games.
+ *
+ * Author: 	Toby Waite
+ * Contact: toby.waite@gmail.com
+ * Updated: November 16th, 2010.
+ */
+
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+
+public class ShardResult {
+
+	// every result line starts with this.
+	public static final String Prefix = "tictactoe-shard";
+
+	// the match
+	public int agentType;
+	public int opponentType;
+	public long totalGames;
+	public long seed;
+	// this shard
+	public int shard;
+	public int shardCount;
+	public long games;
+	public long wins;
+	public long ties;
+	public long losses;
+	public long millis;
+
+	// The seed shard 'shard' plays from. Each shard's seed is drawn from a generator of its own, seeded from the
+	//  match seed and the shard number, so shards don't share a stream of random numbers.
+	public static long shardSeed(long matchSeed, int shard){
+		return new SplittableRandom(matchSeed ^ (shard * 0x9E3779B97F4A7C15L)).nextLong();
+	}
+
+	// the first game (counting from zero) of a shard's slice of totalGames games, for shard = 0 to shardCount.
+	public static long firstGame(long totalGames, int shard, int shardCount){
+		return totalGames * shard / shardCount;
+	}
+
+	public String toString(){
+		return Prefix + " agent=" + agentType + " opponent=" + opponentType + " totalGames=" + totalGames +
+			   " seed=" + seed + " shard=" + shard + "/" + shardCount + " games=" + games + " won=" + wins +
+			   " tied=" + ties + " lost=" + losses + " millis=" + millis;
+	}
+
+	// Read a result line, or return null if the line isn't one (a worker's other output, say).
+	public static ShardResult parse(String line) throws ParameterException {
+		if(!line.startsWith(Prefix + " "))
+			return null;
+		ShardResult result = new ShardResult();
+		try{
+			for(String field : line.substring(Prefix.length() + 1).trim().split(" +")){
+				String[] pair = field.split("=", 2);
+				if(pair.length != 2)
+					throw new ParameterException("Bad shard result field '" + field + "'");
+				switch(pair[0]){
+					case "agent":		result.agentType = Integer.parseInt(pair[1]); break;
+					case "opponent":	result.opponentType = Integer.parseInt(pair[1]); break;
+					case "totalGames":	result.totalGames = Long.parseLong(pair[1]); break;
+					case "seed":		result.seed = Long.parseLong(pair[1]); break;
+					case "shard":
+						String[] parts = pair[1].split("/");
+						result.shard = Integer.parseInt(parts[0]);
+						result.shardCount = Integer.parseInt(parts[1]);
+						break;
+					case "games":		result.games = Long.parseLong(pair[1]); break;
+					case "won":			result.wins = Long.parseLong(pair[1]); break;
+					case "tied":		result.ties = Long.parseLong(pair[1]); break;
+					case "lost":		result.losses = Long.parseLong(pair[1]); break;
+					case "millis":		result.millis = Long.parseLong(pair[1]); break;
+					default:			break; // fields added later are skipped.
+				}
+			}
+		} catch(NumberFormatException | ArrayIndexOutOfBoundsException e){
+			throw new ParameterException("Bad shard result line '" + line + "'");
+		}
+		return result;
+	}
+
+	// Merge the results of every shard of a match. The shards must all be from the same match, and cover it
+	//  exactly: every shard from 0 to shardCount - 1, once each. The merged result has shard 0 of 1, and the
+	//  longest time any shard took.
+	public static ShardResult merge(ArrayList<ShardResult> shards) throws ParameterException {
+		if(shards.isEmpty())
+			throw new ParameterException("No shard results to merge");
+		ShardResult first = shards.get(0);
+		boolean[] seen = new boolean[first.shardCount];
+		ShardResult merged = new ShardResult();
+		merged.agentType = first.agentType;
+		merged.opponentType = first.opponentType;
+		merged.totalGames = first.totalGames;
+		merged.seed = first.seed;
+		merged.shard = 0;
+		merged.shardCount = 1;
+		for(ShardResult s : shards){
+			if(s.agentType != first.agentType || s.opponentType != first.opponentType ||
+			   s.totalGames != first.totalGames || s.seed != first.seed || s.shardCount != first.shardCount)
+				throw new ParameterException("Shard " + s.shard + " is from a different match");
+			if(s.shard < 0 || s.shard >= seen.length || seen[s.shard])
+				throw new ParameterException("Shard " + s.shard + "/" + s.shardCount + " is out of range or repeated");
+			seen[s.shard] = true;
+			merged.games += s.games;
+			merged.wins += s.wins;
+			merged.ties += s.ties;
+			merged.losses += s.losses;
+			merged.millis = Math.max(merged.millis, s.millis);
+		}
+		for(int i = 0; i < seen.length; i++){
+			if(!seen[i])
+				throw new ParameterException("Shard " + i + "/" + first.shardCount + " is missing");
+		}
+		if(merged.games != merged.totalGames)
+			throw new ParameterException("Shards played " + merged.games + " of " + merged.totalGames + " games");
+		return merged;
+	}
+}
@@ -0,0 +1,115 @@
+/*
+ * Tic Tac Toe A simple machine learning simulator.
+ *
+ * Class: StateEnumerator
+ *
+ * Enumerates every game state reachable from the empty board, one layer at a time, where layer n holds the boards
+ * with n pieces on them. Each layer is built from the one before it by making every legal move from every board
+ * that is still in progress, and a board reached along several move orders is kept only the first time it is
+ * seen. Every board is therefore expanded exactly once, where a depth first walk of the game tree would visit
+ * each board once for every path to it (about 550,000 visits to find 5478 boards).
+ *
+ * Boards are handled as state keys (see StateKey) and the visited set is a bitset with one bit per possible key,
+ * updated with compare-and-set so that a layer can be expanded on several threads at once. Nothing recurses, so
+ * the depth of the game tree doesn't matter.
+ *
+ * Author: 	Toby Waite
+ * Contact: toby.waite@gmail.com
+ * Updated: November 16th, 2010.
+ */
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+
+public final class StateEnumerator {
+
+	private StateEnumerator(){}
+
+	// Every reachable state key, grouped by layer: layers[n] holds the keys of boards with n pieces, in increasing
+	//  order. If parallel is true, each layer is expanded on the common fork/join pool.
+	public static int[][] enumerateLayers(boolean parallel){
+		final AtomicLongArray visited = new AtomicLongArray((StateKey.NumKeys + 63) / 64);
+		int[][] layers = new int[Consts.NumSquares + 1][];
+		layers[0] = new int[] {0};
+		markVisited(visited, 0);
+		for(int n = 1; n < layers.length; n++){
+			if(parallel){
+				layers[n] = Arrays.stream(layers[n-1]).parallel()
+								  .flatMap(key -> IntStream.of(children(key)))
+								  .filter(key -> markVisited(visited, key))
+								  .toArray();
+				// threads finish in any order, so sort to make the result the same every time.
+				Arrays.sort(layers[n]);
+			}
+			else
+				layers[n] = expandLayer(layers[n-1], visited);
+		}
+		return layers;
+	}
+
+	// Expand a layer on this thread. The children of a sorted layer are not in order, so they are sorted too.
+	private static int[] expandLayer(int[] layer, AtomicLongArray visited){
+		int[] next = new int[layer.length * Consts.NumSquares];
+		int count = 0;
+		for(int key : layer){
+			for(int child : children(key)){
+				if(markVisited(visited, child))
+					next[count++] = child;
+			}
+		}
+		next = Arrays.copyOf(next, count);
+		Arrays.sort(next);
+		return next;
+	}
+
+	// Every reachable state key, in layer order.
+	public static int[] enumerate(boolean parallel){
+		int[][] layers = enumerateLayers(parallel);
+		int total = 0;
+		for(int[] layer : layers)
+			total += layer.length;
+		int[] keys = new int[total];
+		int next = 0;
+		for(int[] layer : layers){
+			System.arraycopy(layer, 0, keys, next, layer.length);
+			next += layer.length;
+		}
+		return keys;
+	}
+
+	// true if the game is over on this board: someone has a line, or the board is full.
+	public static boolean isTerminal(int key){
+		int x = StateKey.xMask(key), o = StateKey.oMask(key);
+		return BitBoard.hasLine(x) || BitBoard.hasLine(o) || (x | o) == BitBoard.Full;
+	}
+
+	// The keys after each legal move from this board, or none if the game is over. X moves when the pieces are
+	//  even.
+	public static int[] children(int key){
+		if(isTerminal(key))
+			return new int[0];
+		int x = StateKey.xMask(key), o = StateKey.oMask(key);
+		int mover = (Integer.bitCount(x) == Integer.bitCount(o)) ? Consts.MoveX : Consts.MoveO;
+		int empty = BitBoard.Full & ~(x | o);
+		int[] children = new int[Integer.bitCount(empty)];
+		for(int i = 0; empty != 0; i++){
+			children[i] = StateKey.withMove(key, Integer.numberOfTrailingZeros(empty), mover);
+			empty &= empty - 1;
+		}
+		return children;
+	}
+
+	// Set the bit for a key, returning true if this call set it and false if it was already set.
+	private static boolean markVisited(AtomicLongArray visited, int key){
+		int word = key >>> 6;
+		long bit = 1L << key;
+		while(true){
+			long current = visited.get(word);
+			if((current & bit) != 0)
+				return false;
+			if(visited.compareAndSet(word, current, current | bit))
+				return true;
+		}
+	}
+}
@@ -0,0 +1,34 @@
+/*
+ * Tic Tac Toe A simple machine learning simulator.
+ *
+ * Class: StateExpansionEvent
+ *
+ * A JDK Flight Recorder event covering the expansion of the game tree into the shared StateGraph: enumerating every
+ * state reachable from the empty board and linking each to its successors and predecessors. This happens once per
+ * process, when the first learning agent is created, so it is the one part of training that TableSetupEvent,
+ * SweepEvent and PolicyRoundEvent don't cover.
+ *
+ * Author: 	Toby Waite
+ * Contact: toby.waite@gmail.com
+ * Updated: November 16th, 2010.
+ */
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("tictactoe.StateExpansion")
+@Label("State Graph Expansion")
+@Category({"Tic Tac Toe", "Training"})
+@Description("Building the graph of every reachable game state, once per process")
+public class StateExpansionEvent extends Event {
+
+	@Label("States")
+	public int states;
+
+	@Label("Moves")
+	@Description("Number of moves between states in the graph")
+	public int moves;
+}
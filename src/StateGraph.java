@@ -0,0 +1,201 @@
+/*
+ * Tic Tac Toe A simple machine learning simulator.
+ *
+ * Class: StateGraph
+ *
+ * The graph of every game state reachable from the empty board, with the facts about each state that don't depend
+ * on who is playing: whether the game is over and how it ended, whose turn it is, and which state each legal move
+ * leads to. The graph is built once per process (from StateEnumerator) the first time it is asked for, and never
+ * changes afterwards, so every agent and tool in the process can share the one copy, from any thread. Building it
+ * is timed, added to the Counters and committed as a StateExpansionEvent.
+ *
+ * States are numbered densely from 0 to size() - 1 in layer order: the empty board first, then every board with
+ * one piece, and so on, with the boards in each layer in increasing key order. Every move therefore leads to a
+ * state with a higher index, and sweeping the indices backwards visits each state after all of its successors.
+ *
+ * The successors are stored in compressed rows: the moves out of state i are entries successorStart[i] up to
+ * successorStart[i+1] of successorMove and successorIndex, in increasing square order. The predecessors, the states
+ * with a move into each state, are stored the same way in predecessorStart and predecessorIndex.
+ *
+ * Author: 	Toby Waite
+ * Contact: toby.waite@gmail.com
+ * Updated: November 16th, 2010.
+ */
+
+import java.util.Arrays;
+
+public final class StateGraph {
+
+	private final int[] keys;			// state index -> state key
+	private final int[] indexOfKey;		// state key -> state index, or -1 if the board can't be reached
+	private final byte[] outcome;		// Consts.GameInProgress, GameWon, GameLost or GameTied
+	private final byte[] sideToMove;	// Consts.MoveX or MoveO
+	private final int[] layerStart;		// index of the first state with n pieces, for n = 0 to NumSquares + 1
+
+	private final int[] successorStart;
+	private final byte[] successorMove;
+	private final int[] successorIndex;
+
+	private final int[] predecessorStart;
+	private final int[] predecessorIndex;
+
+	// how long the graph took to build.
+	private final long buildNanos;
+
+	// the graph is built when this class is first used.
+	private static class Holder {
+		static final StateGraph Instance = new StateGraph();
+	}
+
+	// the process wide state graph.
+	public static StateGraph get(){
+		return Holder.Instance;
+	}
+
+	private StateGraph(){
+		long start = System.nanoTime();
+		StateExpansionEvent event = null;
+		if(Counters.recording()){
+			event = new StateExpansionEvent();
+			event.begin();
+		}
+		int[][] layers = StateEnumerator.enumerateLayers(false);
+		layerStart = new int[layers.length + 1];
+		for(int n = 0; n < layers.length; n++)
+			layerStart[n+1] = layerStart[n] + layers[n].length;
+		int size = layerStart[layers.length];
+
+		keys = new int[size];
+		for(int n = 0; n < layers.length; n++)
+			System.arraycopy(layers[n], 0, keys, layerStart[n], layers[n].length);
+		indexOfKey = new int[StateKey.NumKeys];
+		Arrays.fill(indexOfKey, -1);
+		for(int i = 0; i < size; i++)
+			indexOfKey[keys[i]] = i;
+
+		outcome = new byte[size];
+		sideToMove = new byte[size];
+		successorStart = new int[size + 1];
+		int edges = 0;
+		for(int i = 0; i < size; i++){
+			int x = StateKey.xMask(keys[i]), o = StateKey.oMask(keys[i]);
+			if(BitBoard.hasLine(x))
+				outcome[i] = Consts.GameWon;
+			else if(BitBoard.hasLine(o))
+				outcome[i] = Consts.GameLost;
+			else if((x | o) == BitBoard.Full)
+				outcome[i] = Consts.GameTied;
+			else{
+				outcome[i] = Consts.GameInProgress;
+				edges += Integer.bitCount(BitBoard.Full & ~(x | o));
+			}
+			sideToMove[i] = (byte)((Integer.bitCount(x) == Integer.bitCount(o)) ? Consts.MoveX : Consts.MoveO);
+		}
+
+		successorMove = new byte[edges];
+		successorIndex = new int[edges];
+		int next = 0;
+		for(int i = 0; i < size; i++){
+			successorStart[i] = next;
+			if(outcome[i] != Consts.GameInProgress)
+				continue;
+			int empty = BitBoard.Full & ~(StateKey.xMask(keys[i]) | StateKey.oMask(keys[i]));
+			for(; empty != 0; empty &= empty - 1){
+				int square = Integer.numberOfTrailingZeros(empty);
+				successorMove[next] = (byte)square;
+				successorIndex[next] = indexOfKey[StateKey.withMove(keys[i], square, sideToMove[i])];
+				next++;
+			}
+		}
+		successorStart[size] = next;
+
+		// the predecessors are the successor rows reversed: count the moves into each state, then fill the rows.
+		predecessorStart = new int[size + 1];
+		for(int e = 0; e < edges; e++)
+			predecessorStart[successorIndex[e] + 1]++;
+		for(int i = 0; i < size; i++)
+			predecessorStart[i+1] += predecessorStart[i];
+		predecessorIndex = new int[edges];
+		int[] filled = new int[size];
+		for(int i = 0; i < size; i++){
+			for(int e = successorStart[i]; e < successorStart[i+1]; e++){
+				int j = successorIndex[e];
+				predecessorIndex[predecessorStart[j] + filled[j]++] = i;
+			}
+		}
+
+		buildNanos = System.nanoTime() - start;
+		Counters.Expansions.increment();
+		Counters.StatesExpanded.add(size);
+		Counters.ExpansionNanos.add(buildNanos);
+		if(event != null){
+			event.states = size;
+			event.moves = edges;
+			event.commit();
+		}
+	}
+
+	// how long building the graph took, in nanoseconds.
+	public long getBuildNanos(){
+		return buildNanos;
+	}
+
+	// the number of reachable states.
+	public int size(){
+		return keys.length;
+	}
+
+	// the state key (see StateKey) of a state.
+	public int getKey(int index){
+		return keys[index];
+	}
+
+	// the index of the state with the given key, or -1 if that board can't be reached in a game.
+	public int indexOf(int key){
+		return indexOfKey[key];
+	}
+
+	// how the game stands: Consts.GameInProgress, GameWon (X has a line), GameLost (O has a line) or GameTied.
+	public int getOutcome(int index){
+		return outcome[index];
+	}
+
+	public boolean isTerminal(int index){
+		return outcome[index] != Consts.GameInProgress;
+	}
+
+	// the piece that moves next from a state, Consts.MoveX or MoveO. For a finished game, the piece that would.
+	public int getSideToMove(int index){
+		return sideToMove[index];
+	}
+
+	// the number of legal moves from a state, which is zero if the game is over.
+	public int getSuccessorCount(int index){
+		return successorStart[index+1] - successorStart[index];
+	}
+
+	// the square played by the n-th legal move from a state, in increasing square order.
+	public int getSuccessorMove(int index, int n){
+		return successorMove[successorStart[index] + n];
+	}
+
+	// the state reached by the n-th legal move from a state.
+	public int getSuccessor(int index, int n){
+		return successorIndex[successorStart[index] + n];
+	}
+
+	// the number of states with a legal move into a state, which is zero for the empty board.
+	public int getPredecessorCount(int index){
+		return predecessorStart[index+1] - predecessorStart[index];
+	}
+
+	// the n-th state with a legal move into a state, in increasing index order.
+	public int getPredecessor(int index, int n){
+		return predecessorIndex[predecessorStart[index] + n];
+	}
+
+	// the index of the first state with the given number of pieces. getLayerStart(NumSquares + 1) is size().
+	public int getLayerStart(int pieces){
+		return layerStart[pieces];
+	}
+}
@@ -0,0 +1,112 @@
+/*
+ * Tic Tac Toe A simple machine learning simulator.
+ *
+ * Class: StateKey
+ *
+ * Helper functions for the integer keys used to identify game states. A key interprets a game board as the digits
+ * of a ternary (base three) number, with square i as the i-th digit, so every board has a unique key between 0 and
+ * 3^9 - 1. These are the same keys the learning agents use for their value tables.
+ *
+ * Author: 	Toby Waite
+ * Contact: toby.waite@gmail.com
+ * Updated: November 16th, 2010.
+ */
+
+import java.util.Comparator;
+
+public final class StateKey {
+
+	// number of possible keys, 3^9.
+	public static final int NumKeys = 19683;
+
+	// Pow3[i] is 3^i, the place value of square i.
+	private static final int[] Pow3 = new int[Consts.NumSquares + 1];
+
+	static {
+		Pow3[0] = 1;
+		for(int i = 1; i < Pow3.length; i++)
+			Pow3[i] = 3 * Pow3[i-1];
+	}
+
+	// orders keys so that boards with more pieces on them come first.
+	public static final Comparator<Integer> DeepestFirst = new Comparator<Integer>(){
+		public int compare(Integer a, Integer b){
+			return pieceCount(b) - pieceCount(a);
+		}
+	};
+
+	private StateKey(){}
+
+	// the key for a game board.
+	public static int encode(int[] board){
+		int key = 0;
+		for(int i = 0; i < board.length; i++)
+			key += board[i] * Pow3[i];
+		return key;
+	}
+
+	// the game board for a key.
+	public static int[] decode(int key){
+		int[] board = new int[Consts.NumSquares];
+		for(int i = 0; i < board.length; i++){
+			board[i] = key % 3;
+			key /= 3;
+		}
+		return board;
+	}
+
+	// the contents (Consts.MoveEmpty, MoveX or MoveO) of one square.
+	public static int getSquare(int key, int square){
+		return (key / Pow3[square]) % 3;
+	}
+
+	// the key after placing a piece of the given type on an empty square.
+	public static int withMove(int key, int square, int moveType){
+		return key + moveType * Pow3[square];
+	}
+
+	// the number of pieces on the board.
+	public static int pieceCount(int key){
+		int count = 0;
+		for(int i = 0; i < Consts.NumSquares; i++){
+			if(key % 3 != Consts.MoveEmpty)
+				count++;
+			key /= 3;
+		}
+		return count;
+	}
+
+	// bit masks (see BitBoard) of the squares held by X and by O.
+	public static int xMask(int key){
+		return mask(key, Consts.MoveX);
+	}
+	public static int oMask(int key){
+		return mask(key, Consts.MoveO);
+	}
+	private static int mask(int key, int moveType){
+		int mask = 0;
+		for(int i = 0; i < Consts.NumSquares; i++){
+			if(key % 3 == moveType)
+				mask |= 1 << i;
+			key /= 3;
+		}
+		return mask;
+	}
+
+	// The keys of every board one move earlier: this board with one of the last mover's pieces taken away. X moves
+	//  first, so X moved last if X has more pieces than O, and O moved last otherwise.
+	public static int[] parents(int key){
+		int x = xMask(key), o = oMask(key);
+		if(x == 0)
+			return new int[0];
+		int lastMover = (Integer.bitCount(x) > Integer.bitCount(o)) ? Consts.MoveX : Consts.MoveO;
+		int pieces = (lastMover == Consts.MoveX) ? x : o;
+		int[] parents = new int[Integer.bitCount(pieces)];
+		for(int i = 0; pieces != 0; i++){
+			int square = Integer.numberOfTrailingZeros(pieces);
+			parents[i] = key - lastMover * Pow3[square];
+			pieces &= pieces - 1;
+		}
+		return parents;
+	}
+}
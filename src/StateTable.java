@@ -0,0 +1,41 @@
+/*
+ * Tic Tac Toe A simple machine learning simulator.
+ *
+ * Class: StateTable
+ *
+ * The table a learning agent keeps its state values and policies in, indexed by state key (see StateKey). Two
+ * implementations are provided. HashStateTable keeps them in hashtables on the heap, which is what the learning
+ * agents use unless told otherwise. MappedStateTable keeps float values and byte policies in a memory mapped file,
+ * so the table lives in the operating system's page cache rather than on the Java heap, and can grow beyond what
+ * the heap could hold.
+ *
+ * Author: 	Toby Waite
+ * Contact: toby.waite@gmail.com
+ * Updated: November 16th, 2010.
+ */
+
+import java.io.IOException;
+import java.util.Enumeration;
+
+public abstract class StateTable {
+
+	// true if the table has an entry for the state.
+	public abstract boolean containsKey(int key);
+
+	// the value of a state. A table may store values with less precision than a double.
+	public abstract double getValue(int key);
+	public abstract void putValue(int key, double value);
+
+	// the move the policy plays in a state, or Consts.NoMove.
+	public abstract int getPolicy(int key);
+	public abstract void putPolicy(int key, int move);
+
+	// the number of states in the table.
+	public abstract int size();
+
+	// the key of every state in the table.
+	public abstract Enumeration<Integer> keys();
+
+	// Write any changes out and release the table's resources. The table can't be used afterwards.
+	public void close() throws IOException {}
+}
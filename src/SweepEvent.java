@@ -0,0 +1,39 @@
+/*
+ * Tic Tac Toe A simple machine learning simulator.
+ *
+ * Class: SweepEvent
+ *
+ * A JDK Flight Recorder event covering one sweep over a learning agent's value table, during value iteration or
+ * policy evaluation.
+ *
+ * Author: 	Toby Waite
+ * Contact: toby.waite@gmail.com
+ * Updated: November 16th, 2010.
+ */
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("tictactoe.Sweep")
+@Label("Value Sweep")
+@Category({"Tic Tac Toe", "Training"})
+@Description("One sweep of backups over the value table")
+public class SweepEvent extends Event {
+
+	@Label("Agent")
+	public String agent;
+
+	@Label("Sweep")
+	@Description("Number of this sweep since training started, counting from one")
+	public int sweep;
+
+	@Label("Max Delta")
+	@Description("Largest change to any state's value during the sweep")
+	public double maxDelta;
+
+	@Label("States Touched")
+	public int statesTouched;
+}
@@ -0,0 +1,33 @@
+/*
+ * Tic Tac Toe A simple machine learning simulator.
+ *
+ * Class: TableSetupEvent
+ *
+ * A JDK Flight Recorder event covering a learning agent's setup of its value and policy tables, one entry for each
+ * state in the shared StateGraph, before training. Building the graph itself is covered by StateExpansionEvent.
+ * Like the other training events (SweepEvent, PolicyRoundEvent, MatchBatchEvent), it costs next to nothing unless a
+ * recording is running, e.g. java -XX:StartFlightRecording=filename=training.jfr TicTacToe 1 100 4
+ *
+ * Author: 	Toby Waite
+ * Contact: toby.waite@gmail.com
+ * Updated: November 16th, 2010.
+ */
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("tictactoe.TableSetup")
+@Label("Value Table Setup")
+@Category({"Tic Tac Toe", "Training"})
+@Description("Filling the value and policy tables with the reachable game states before training")
+public class TableSetupEvent extends Event {
+
+	@Label("Agent")
+	public String agent;
+
+	@Label("States")
+	public int states;
+}
@@ -0,0 +1,62 @@
+/*
+ * Tic Tac Toe A simple machine learning simulator.
+ *
+ * Class: ThreatTables
+ *
+ * Precomputed threats for every board, indexed by state key (see StateKey, and Game.getStateKey), so that the
+ * scripted agents can find winning, blocking and forking squares with a single array load rather than by
+ * simulating a move on every square. For each side there are two tables:
+ *  - winning squares: the empty squares that would complete a line for that side.
+ *  - fork squares: the empty squares that, without winning straight away, would leave that side with two or more
+ *    winning squares at once, so that the other side can't block them all.
+ * The squares that block a side are the other side's winning squares, and likewise for forks. Each entry is a bit
+ * mask of squares, as in BitBoard.
+ *
+ * The tables are built for all 3^9 keys, including boards that can't be reached, and take 156KB.
+ *
+ * Author: 	Toby Waite
+ * Contact: toby.waite@gmail.com
+ * Updated: November 16th, 2010.
+ */
+
+public final class ThreatTables {
+
+	private static final short[] XWins = new short[StateKey.NumKeys];
+	private static final short[] OWins = new short[StateKey.NumKeys];
+	private static final short[] XForks = new short[StateKey.NumKeys];
+	private static final short[] OForks = new short[StateKey.NumKeys];
+
+	static {
+		for(int key = 0; key < StateKey.NumKeys; key++){
+			int x = StateKey.xMask(key), o = StateKey.oMask(key);
+			int empty = BitBoard.Full & ~(x | o);
+			XWins[key] = (short)BitBoard.completingSquares(x, empty);
+			OWins[key] = (short)BitBoard.completingSquares(o, empty);
+			XForks[key] = (short)BitBoard.forkingSquares(x, empty);
+			OForks[key] = (short)BitBoard.forkingSquares(o, empty);
+		}
+	}
+
+	private ThreatTables(){}
+
+	// the empty squares that would win the game for the side playing moveType (Consts.MoveX or MoveO).
+	public static int winningSquares(int key, int moveType){
+		return (moveType == Consts.MoveX) ? XWins[key] : OWins[key];
+	}
+
+	// the squares the side playing moveType must take to stop the other side winning on its next move.
+	public static int blockingSquares(int key, int moveType){
+		return (moveType == Consts.MoveX) ? OWins[key] : XWins[key];
+	}
+
+	// the empty squares, other than winning squares, that would give the side playing moveType two or more ways
+	//  to win.
+	public static int forkSquares(int key, int moveType){
+		return (moveType == Consts.MoveX) ? XForks[key] : OForks[key];
+	}
+
+	// the empty squares the other side could fork from, which the side playing moveType can take away.
+	public static int forkBlockingSquares(int key, int moveType){
+		return (moveType == Consts.MoveX) ? OForks[key] : XForks[key];
+	}
+}
@@ -13,6 +13,8 @@
  * PolicyItrAgent and ValueItrAgent which implement the Policy Iteration and Value Iteration machine learning 
  * algorithms respectively.
  * 
+ * Games can optionally be written to a game log (see GameLogWriter) and inspected later with GameLogReplay.
+ * 
  * Please see README.txt for usage instructions and more details.
  * 
  * Author: 	Toby Waite
@@ -20,16 +22,58 @@
  * Updated: November 16th, 2010.
  */
 
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Random;
+
 public class TicTacToe {
 
 	// each match consists of a number of games between two agents.
 	private int numGames;
 	private Agent opponent;
 	private Agent ourAgent;
+	private int agentType;
+	private int opponentType;
+
+	// optional parameters. seed is null if no seed was given, and logFile is null if games are not logged.
+	private Long seed;
+	private String logFile;
+	// if true, the opponent is wrapped in an OpponentModel and our agent adapts to it between games.
+	private boolean adapt;
+	// if true, the process wide Counters are printed after the match.
+	private boolean printCounters;
+	// if true, our agent trains in the background while the match is played (see PolicySnapshot).
+	private boolean background;
+	// if true, our agent is compiled into a move table once trained (see MoveTableCompiler).
+	private boolean compile;
+	// tableFile is null if our agent keeps its state table on the heap.
+	private String tableFile;
+	// warmFile is null unless our agent starts training from a table saved by an earlier run.
+	private String warmFile;
+	// progressFile is null if progress is not reported.
+	private String progressFile;
+	private int progressInterval = ProgressReporter.DefaultIntervalSeconds;
+	// with -shard, this match is one slice of a larger match (see ShardResult), whose size and seed are kept here.
+	private boolean sharded;
+	private int shard;
+	private int shardCount = 1;
+	private long totalGames;
+	private long matchSeed;
+	// resultsFile is null unless the results are written as a shard result line, to a file or to "-" (stdout).
+	private String resultsFile;
+
+	// number of games covered by each MatchBatchEvent.
+	private static final int EventBatchSize = 1000;
 	
 	// Store gameResults for data post-processing
 	private int[] gameResults;
 	
+	// with background training, the first game played with the fully trained policy, or -1 if none was.
+	private int convergedGame;
+
 	// game results
 	private int wins;
 	private int losses;
@@ -39,8 +83,29 @@ public class TicTacToe {
 
 		TicTacToe match = new TicTacToe();
 
+		// a tournament plays every agent against every opponent, so it takes its own parameters.
+		if(args.length > 0 && args[0].equals("tournament")){
+			Tournament.main(args);
+			return;
+		}
+		// as do sharded matches, which are played by several worker processes, and merging their results.
+		if(args.length > 0 && (args[0].equals("shards") || args[0].equals("merge"))){
+			ShardCoordinator.main(args);
+			return;
+		}
+		// as does a sweep over the learning parameters.
+		if(args.length > 0 && args[0].equals("sweep")){
+			ParameterSweep.main(args);
+			return;
+		}
+		// and a server, which plays any number of remote clients.
+		if(args.length > 0 && args[0].equals("server")){
+			GameServer.main(args);
+			return;
+		}
+
 		// If an incorrect number of parameters is entered, print function usage.
-		if(args.length !=3){
+		if(args.length < 3){
 			printUsage();
 			System.exit(1);
 		}
@@ -50,6 +115,7 @@ public class TicTacToe {
 			match.setAgent(Integer.parseInt(args[0]));
 			match.setNumGames(Integer.parseInt(args[1]));
 			match.setOpponent(Integer.parseInt(args[2]));
+			match.setOptions(Arrays.copyOfRange(args, 3, args.length));
 		}
 		catch(NumberFormatException e){
 			System.out.println("All parameters must be integers!");
@@ -63,28 +129,72 @@ public class TicTacToe {
 		}
 
 		// run the match, then show the results!
-		match.run();
-		match.computeResults();
+		long start = System.nanoTime();
+		try{
+			match.run();
+			match.computeResults();
+			if(match.resultsFile != null)
+				match.writeShardResult((System.nanoTime() - start) / 1000000);
+		}
+		catch(IOException e){
+			System.out.println("Could not write output file: " + e.getMessage());
+			System.exit(1);
+		}
 		if(match.numGames > 1) // only display match statistics if more than one game is played.
 			match.showMatchResults();
+		if(match.background)
+			match.showTrainingProgress();
+		if(match.printCounters)
+			Counters.print();
 	}
 	
 	private static void printUsage(){
-		System.out.println("Usage: java TicTacToe <AgentType> <NumberOfGames> <OpponentType>");
+		System.out.println("Usage: java TicTacToe <AgentType> <NumberOfGames> <OpponentType> [-seed <Seed>] [-log <LogFile>] [-adapt] [-counters]");
+		System.out.println("                         [-table <TableFile>] [-warm <TableFile>] [-background] [-compile]");
+		System.out.println("                         [-progress <ProgressFile>] [-interval <Seconds>]");
+		System.out.println("                         [-shard <Index>/<Count>] [-results <ResultsFile>] [-rules <Rules>]");
+		System.out.println("       java TicTacToe tournament <NumberOfGames> [ResultsFile]");
+		System.out.println("       java TicTacToe sweep <NumberOfGames> [-agent <Types>] [-opponent <Types>] [-discount <Values>] ...");
+		System.out.println("       java TicTacToe server <Port> <AgentType> [TrainingOpponentType]");
+		System.out.println("       java TicTacToe shards <Workers> <AgentType> <NumberOfGames> <OpponentType> [Options]");
+		System.out.println("       java TicTacToe merge <ResultsFile>...");
 		System.out.println("Please see README for details about parameters and usage examples.");
 	}
 
-	// determines the opponent type given the run-time parameters.
-	private void setOpponent(int opp) throws ParameterException{		
+	// create a new opponent of the given type.
+	static Agent createOpponent(int opp) throws ParameterException{
 		switch(opp){
- 			case Consts.OpponentRandom: 	opponent = new NaiveAgent(); break;
-			case Consts.OpponentDefensive: 	opponent = new DefensiveAgent(); break;
-			case Consts.OpponentAggressive: opponent = new AggressiveAgent(); break;
-			case Consts.OpponentBalanced: 	opponent = new BalancedAgent(); break;
-			case Consts.OpponentHuman:		opponent = new HumanAgent(); break;
+ 			case Consts.OpponentRandom: 	return new NaiveAgent();
+			case Consts.OpponentDefensive: 	return new DefensiveAgent();
+			case Consts.OpponentAggressive: return new AggressiveAgent();
+			case Consts.OpponentBalanced: 	return new BalancedAgent();
+			case Consts.OpponentHuman:		return new HumanAgent();
+			case Consts.OpponentForking:	return new ForkingAgent();
+			case Consts.OpponentForkAware:	return new ForkAwareAgent();
+			case Consts.OpponentRules:		throw new ParameterException("Opponent " + opp + " plays by rules given with -rules");
 			default: throw new ParameterException("Opponent number (" + opp + ") out of range!");
 		}
 	}
+
+	// create a new agent of the given type.
+	static Agent createAgent(int agent) throws ParameterException{
+		switch(agent){
+			case Consts.AgentRandom:	return new NaiveAgent();
+			case Consts.AgentValItr: 	return new ValueItrAgent();
+			case Consts.AgentPolItr: 	return new PolicyItrAgent();
+			case Consts.AgentHuman:		return new HumanAgent();
+			default: throw new ParameterException("Agent number out of range!");
+		}
+	}
+
+	// determines the opponent type given the run-time parameters.
+	private void setOpponent(int opp) throws ParameterException{		
+		opponentType = opp;
+		// a rule opponent is created once its rules are read, by setOptions.
+		if(opp == Consts.OpponentRules)
+			return;
+		opponent = createOpponent(opp);
+	}
 	// sets the number of games as specified in the run-time parameters.
 	private void setNumGames(int n) throws ParameterException{
 		// make sure the number of games specified is valid.
@@ -97,35 +207,253 @@ public class TicTacToe {
 	}	
 	// set ourAgent based on run-time parameters.
 	private void setAgent(int agent) throws ParameterException{
-		switch(agent){
-			case Consts.AgentRandom:	ourAgent = new NaiveAgent(); break;
-			case Consts.AgentValItr: 	ourAgent = new ValueItrAgent(); break;
-			case Consts.AgentPolItr: 	ourAgent = new PolicyItrAgent(); break;
-			case Consts.AgentHuman:		ourAgent = new HumanAgent(); break;
-			default: throw new ParameterException("Agent number out of range!");
+		ourAgent = createAgent(agent);
+		agentType = agent;
+	}
+
+	// parse the optional parameters that follow the required ones.
+	private void setOptions(String[] options) throws ParameterException{
+		for(int i = 0; i < options.length; i++){
+			boolean hasValue = (i + 1 < options.length);
+			if(options[i].equals("-seed") && hasValue)
+				seed = Long.parseLong(options[++i]);
+			else if(options[i].equals("-log") && hasValue)
+				logFile = options[++i];
+			else if(options[i].equals("-adapt"))
+				adapt = true;
+			else if(options[i].equals("-counters"))
+				printCounters = true;
+			else if(options[i].equals("-table") && hasValue){
+				if(!isLearner())
+					throw new ParameterException("Only the learning agents have a state table");
+				tableFile = options[++i];
+			}
+			else if(options[i].equals("-warm") && hasValue){
+				if(!isLearner())
+					throw new ParameterException("Only the learning agents can be warm started");
+				warmFile = options[++i];
+				if(!new File(warmFile).isFile())
+					throw new ParameterException("Warm start table " + warmFile + " doesn't exist");
+				// the other learner's values mean something different, and a ValItrAgent's table has no policies.
+				try{
+					if(MappedStateTable.readAgentType(warmFile) != agentType)
+						throw new ParameterException("Warm start table " + warmFile + " wasn't trained by agent " +
+													 agentType);
+				} catch(IOException e){
+					throw new ParameterException("Can't read warm start table: " + e.getMessage());
+				}
+			}
+			else if(options[i].equals("-background")){
+				if(!isLearner())
+					throw new ParameterException("Only the learning agents can train in the background");
+				background = true;
+			}
+			else if(options[i].equals("-compile")){
+				if(!isLearner())
+					throw new ParameterException("Only the learning agents can be compiled");
+				compile = true;
+			}
+			else if(options[i].equals("-progress") && hasValue)
+				progressFile = options[++i];
+			else if(options[i].equals("-interval") && hasValue){
+				progressInterval = Integer.parseInt(options[++i]);
+				if(progressInterval < 1)
+					throw new ParameterException("Progress interval must be at least one second");
+			}
+			else if(options[i].equals("-shard") && hasValue){
+				String[] parts = options[++i].split("/");
+				if(parts.length != 2)
+					throw new ParameterException("A shard is given as <Index>/<Count>, e.g. 0/4");
+				shard = Integer.parseInt(parts[0]);
+				shardCount = Integer.parseInt(parts[1]);
+				if(shardCount < 1 || shard < 0 || shard >= shardCount)
+					throw new ParameterException("Shard " + shard + "/" + shardCount + " is out of range");
+				sharded = true;
+			}
+			else if(options[i].equals("-results") && hasValue)
+				resultsFile = options[++i];
+			else if(options[i].equals("-rules") && hasValue){
+				if(opponentType != Consts.OpponentRules)
+					throw new ParameterException("-rules needs opponent " + Consts.OpponentRules);
+				opponent = new RuleAgent(MoveRules.parse(options[++i]));
+			}
+			else
+				throw new ParameterException("Unknown option " + options[i]);
+		}
+		if(opponentType == Consts.OpponentRules && opponent == null)
+			throw new ParameterException("Opponent " + Consts.OpponentRules + " needs -rules, e.g. -rules \"win 0.8 > block 0.8 > random\"");
+		// a shard plays its slice of the match, from its own seed drawn from the match seed.
+		if(sharded){
+			if(seed == null)
+				throw new ParameterException("-shard needs -seed, so that the shards play different games");
+			totalGames = numGames;
+			matchSeed = seed;
+			seed = ShardResult.shardSeed(matchSeed, shard);
+			setNumGames((int)(ShardResult.firstGame(totalGames, shard + 1, shardCount) -
+							  ShardResult.firstGame(totalGames, shard, shardCount)));
 		}
+		else{
+			totalGames = numGames;
+			matchSeed = (seed != null) ? seed : 0;
+		}
+		// adapting changes the agent's tables between games, which would race with training.
+		if(adapt && background)
+			throw new ParameterException("-adapt and -background can't be used together");
+		// table files are closed once training is done, which a match with background training doesn't wait for.
+		if(background && (tableFile != null || warmFile != null))
+			throw new ParameterException("-table and -warm can't be used with -background");
+		// a compiled agent can't change, and can only be compiled once trained.
+		if(compile && (adapt || background))
+			throw new ParameterException("-compile can't be used with -adapt or -background");
+	}
+
+	private boolean isLearner(){
+		return agentType == Consts.AgentValItr || agentType == Consts.AgentPolItr;
+	}
+
+	// our agent's training measurements.
+	private TrainingStats getTrainingStats(){
+		if(ourAgent instanceof ValueItrAgent)
+			return ((ValueItrAgent)ourAgent).getTrainingStats();
+		return ((PolicyItrAgent)ourAgent).getTrainingStats();
+	}
+
+	// the latest snapshot published by our agent's background training.
+	private PolicySnapshot getSnapshot(){
+		if(ourAgent instanceof ValueItrAgent)
+			return ((ValueItrAgent)ourAgent).getSnapshot();
+		return ((PolicyItrAgent)ourAgent).getSnapshot();
 	}
 	
 	// run the match
-	private void run(){
+	private void run() throws IOException {
+
+		// to adapt to the opponent, our agent learns from a model of how the opponent really plays.
+		if(adapt)
+			opponent = new OpponentModel(opponent);
 		
+		// a mapped state table keeps our agent's values and policies in a file rather than on the heap.
+		MappedStateTable table = null;
+		if(tableFile != null){
+			table = new MappedStateTable(tableFile);
+			if(ourAgent instanceof ValueItrAgent)
+				((ValueItrAgent)ourAgent).setStateTable(table);
+			else
+				((PolicyItrAgent)ourAgent).setStateTable(table);
+		}
+		MappedStateTable warmTable = null;
+		if(warmFile != null){
+			warmTable = new MappedStateTable(warmFile);
+			// The sweeps saved are only reported when training into a table file, as the cold start did. On the heap
+			//  the values are doubles, swept in a different order, and the float values from the file are a little
+			//  off from them, so the cold start's sweep count says nothing about what the warm start saved.
+			int coldSweeps = (table != null) ? warmTable.getColdSweeps() : 0;
+			if(ourAgent instanceof ValueItrAgent)
+				((ValueItrAgent)ourAgent).warmStart(warmTable, coldSweeps);
+			else
+				((PolicyItrAgent)ourAgent).warmStart(warmTable, coldSweeps);
+		}
+		if(background){
+			if(ourAgent instanceof ValueItrAgent)
+				((ValueItrAgent)ourAgent).setBackgroundTraining(true);
+			else
+				((PolicyItrAgent)ourAgent).setBackgroundTraining(true);
+		}
+
 		// initialize agents
 		opponent.initialize(ourAgent);
 		ourAgent.initialize(opponent);
+		if(warmTable != null){
+			warmTable.close();
+			System.out.println("Warm start: " + getTrainingStats());
+		}
+		// record who trained the table and how long training takes from scratch, for later warm starts from it.
+		if(table != null)
+			table.setTraining(agentType, getTrainingStats().coldSweeps);
+
+		// play the match from a move table compiled from our trained agent, after checking they agree.
+		if(compile){
+			Agent compiled = MoveTableCompiler.compile(ourAgent);
+			System.out.println("Compiled our agent into a move table, differing in " +
+							   MoveTableCompiler.countDifferences(ourAgent, compiled) + " states");
+			ourAgent = compiled;
+		}
 		
 		// only print game results if we are only running one game in the match.
 		boolean printGameResults = (numGames == 1);
+
+		// A seed makes the whole match repeatable. When games are logged, each game is played from its own seed
+		//  (drawn from the match seed if there is one), so that any single game in the log can be played again.
+		GameLogWriter gameLog = null;
+		Random gameSeeds = null;
+		if(logFile != null){
+			gameLog = new GameLogWriter(logFile);
+			gameSeeds = (seed != null) ? new Random(seed) : new Random();
+		}
+		else if(seed != null){
+			Agent.setSeed(seed);
+		}
 		
-		// run numGames game instances, and record the results.
+		ProgressReporter progress = null;
+		if(progressFile != null){
+			progress = new ProgressReporter(progressFile, progressInterval, numGames);
+			progress.start();
+		}
+
+		// run numGames game instances, and record the results. Games are reported to the flight recorder in batches.
+		MatchBatchEvent batch = null;
+		convergedGame = -1;
 		for(int i = 0; i<numGames; i++){
+			if(background && convergedGame < 0){
+				PolicySnapshot latest = getSnapshot();
+				if(latest != null && latest.isConverged())
+					convergedGame = i;
+			}
+			if(i % EventBatchSize == 0 && Counters.recording()){
+				batch = new MatchBatchEvent();
+				batch.begin();
+			}
+			long gameSeed = 0;
+			if(gameLog != null){
+				gameSeed = gameSeeds.nextLong();
+				Agent.setSeed(gameSeed);
+			}
 			Game gameInstance = new Game(ourAgent, opponent);
 			gameResults[i] = gameInstance.playGame();
 						
 			if(printGameResults)
 				gameInstance.printState();
+			if(gameLog != null)
+				gameLog.append(gameSeed, agentType, opponentType, gameInstance);
+			if(progress != null)
+				progress.gameFinished(gameResults[i]);
+			if(adapt)
+				ourAgent.adapt();
+			if(i % EventBatchSize == EventBatchSize - 1 || i == numGames - 1)
+				endBatch(batch, i - (i % EventBatchSize), i + 1);
 		}		
+		if(gameLog != null)
+			gameLog.close();
+		if(progress != null)
+			progress.close();
+		if(table != null)
+			table.close();
 	}
 	
+	// tally the games from 'from' up to (but not including) 'to' into a batch event and the game counter.
+	private void endBatch(MatchBatchEvent batch, int from, int to){
+		Counters.GamesPlayed.add(to - from);
+		if(batch == null || !batch.shouldCommit())
+			return;
+		batch.games = to - from;
+		for(int i = from; i < to; i++){
+			if 		(gameResults[i] == Consts.GameWon) 		batch.wins++;
+			else if (gameResults[i] == Consts.GameLost) 	batch.losses++;
+			else if (gameResults[i] == Consts.GameTied) 	batch.ties++;
+		}
+		batch.commit();
+	}
+
 	// after a set of games in a match is played, tabulate results. 
 	private void computeResults() {
 		for(int i = 0; i< gameResults.length; i++){
@@ -135,10 +463,52 @@ public class TicTacToe {
 		}
 	}
 
+	// report how far background training got during the match.
+	private void showTrainingProgress(){
+		if(convergedGame >= 0)
+			System.out.println("Training converged before game " + (convergedGame + 1));
+		else{
+			PolicySnapshot latest = getSnapshot();
+			System.out.println("Training was still running at the end of the match (" +
+							   ((latest == null) ? 0 : latest.getSweeps()) + " sweeps done)");
+		}
+	}
+
 	// display results to user
 	private void showMatchResults(){
+		showMatchResults(wins, ties, losses);
+	}
+	static void showMatchResults(long wins, long ties, long losses){
 		System.out.println("Won: " + wins + ", " + 100*(wins/(double)(wins + losses + ties)) + "%");
 		System.out.println("Drawn: " + ties + ", " + 100*(ties/(double)(wins + losses + ties)) + "%");
 		System.out.println("Lost: " + losses + ", " + 100*(losses/(double)(wins + losses + ties)) + "%");
 	}
+
+	// Write this match's results as a shard result line (see ShardResult), appending it to the results file, or
+	//  printing it if the file is "-".
+	private void writeShardResult(long millis) throws IOException {
+		ShardResult result = new ShardResult();
+		result.agentType = agentType;
+		result.opponentType = opponentType;
+		result.totalGames = totalGames;
+		result.seed = matchSeed;
+		result.shard = shard;
+		result.shardCount = shardCount;
+		result.games = numGames;
+		result.wins = wins;
+		result.ties = ties;
+		result.losses = losses;
+		result.millis = millis;
+		if(resultsFile.equals("-")){
+			System.out.println(result);
+			return;
+		}
+		PrintWriter out = new PrintWriter(new FileWriter(resultsFile, true));
+		try{
+			out.println(result);
+		}
+		finally{
+			out.close();
+		}
+	}
 }
\ No newline at end of file
@@ -0,0 +1,273 @@
+/*
+ * Tic Tac Toe A simple machine learning simulator.
+ *
+ * Class: Tournament
+ *
+ * A tournament plays a round robin between all of the automatic agents inside a single JVM. Every pairing is played
+ * in both seat orders (the first seat plays 'X' and moves first), pairings are scheduled across all available cores,
+ * and each learning agent is trained once per opponent and then reused for every game it plays against that opponent.
+ *
+ * The learning agents compute their value tables from the point of view of the player that moves first, so they
+ * only ever take the first seat, and learners don't play each other. Pairings with a learner are therefore played in
+ * one seat order only. Each learner plays each opponent in exactly one pairing, so there is no trained agent to share
+ * between pairings: it is trained against that opponent once, as part of the pairing. Scripted agents take either
+ * seat.
+ *
+ * Every agent in a pairing gets a random number generator of its own (see Agent.setRandom), seeded from a
+ * SplittableRandom split off for that pairing, so pairings running on different threads never share a generator.
+ *
+ * Once all games have been played, each participant is given an Elo rating fit to the results of every game, along
+ * with a Glicko style rating deviation that shrinks as more (and more informative) games are played. The results
+ * matrix and ratings are printed and written to a CSV file.
+ *
+ * Author: 	Toby Waite
+ * Contact: toby.waite@gmail.com
+ * Updated: November 16th, 2010.
+ */
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class Tournament {
+
+	// rating parameters
+	private static final double InitialRating = 1500.0;
+	private static final double RatingScale = 400.0;
+	private static final double RatingTolerance = 0.001;
+	private static final int MaxRatingIterations = 10000;
+
+	// participant names and the Consts type used to create each one.
+	private static final String[] Names = {"Random", "Defensive", "Aggressive", "Balanced", "Forking", "ForkAware",
+										   "ValItr", "PolItr"};
+	private static final int[] Types = {Consts.OpponentRandom, Consts.OpponentDefensive, Consts.OpponentAggressive,
+										Consts.OpponentBalanced, Consts.OpponentForking, Consts.OpponentForkAware,
+										Consts.AgentValItr, Consts.AgentPolItr};
+	private static final boolean[] Learner = {false, false, false, false, false, false, true, true};
+
+	private int numGames;
+	// each pairing's agents are seeded from a generator split off this one.
+	private final SplittableRandom seeds = new SplittableRandom();
+	// results[first][second] holds {wins, ties, losses} from the point of view of the first seat, or null if
+	//  the pairing was not played.
+	private int[][][] results;
+	private double[] ratings;
+	private double[] deviations;
+
+	public Tournament(int n){
+		numGames = n;
+		results = new int[Names.length][Names.length][];
+	}
+
+	// usage: java TicTacToe tournament <NumberOfGames> [ResultsFile]
+	public static void main(String[] args) {
+		int first = (args.length > 0 && args[0].equals("tournament")) ? 1 : 0;
+		if(args.length - first < 1 || args.length - first > 2){
+			System.out.println("Usage: java TicTacToe tournament <NumberOfGames> [ResultsFile]");
+			System.exit(1);
+		}
+		int n = 0;
+		try{
+			n = Integer.parseInt(args[first]);
+		}
+		catch(NumberFormatException e){
+			System.out.println("Number of games must be an integer!");
+			System.exit(1);
+		}
+		if(n < 1){
+			System.out.println("Number of games must be positive!");
+			System.exit(1);
+		}
+		String resultsFile = (args.length - first == 2) ? args[first + 1] : "tournament.csv";
+
+		Tournament tournament = new Tournament(n);
+		tournament.run();
+		tournament.computeRatings();
+		tournament.showResults();
+		try{
+			tournament.writeResults(resultsFile);
+			System.out.println("Results written to " + resultsFile);
+		} catch(IOException e){
+			System.out.println("Could not write results: " + e.getMessage());
+			System.exit(1);
+		}
+	}
+
+	// play every pairing. Pairings run concurrently on a pool with one thread per core, and a pairing with a
+	//  learner in the first seat first trains it against the opponent, on the same pool.
+	public void run(){
+		int threads = Runtime.getRuntime().availableProcessors();
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		ArrayList<CompletableFuture<Void>> pairings = new ArrayList<CompletableFuture<Void>>();
+
+		try{
+			for(int i = 0; i < Names.length; i++){
+				for(int j = 0; j < Names.length; j++){
+					// nobody plays themselves, and learners can only take the first seat.
+					if(i == j || Learner[j])
+						continue;
+					final int a = i, b = j;
+					// the pairing's steps run one after another, so they can share its generator.
+					final SplittableRandom pairingSeeds = seeds.split();
+					CompletableFuture<Agent> firstSeat;
+					if(Learner[a])
+						firstSeat = CompletableFuture.supplyAsync(() -> train(a, b, pairingSeeds), pool);
+					else
+						firstSeat = CompletableFuture.completedFuture(createAgent(a, pairingSeeds));
+					pairings.add(firstSeat.thenAcceptAsync(agent ->
+						results[a][b] = play(agent, createAgent(b, pairingSeeds)), pool));
+				}
+			}
+			CompletableFuture.allOf(pairings.toArray(new CompletableFuture<?>[0])).join();
+		}
+		finally{
+			pool.shutdown();
+		}
+	}
+
+	// create and train a learner against a fresh instance of the given opponent.
+	private Agent train(int learner, int opp, SplittableRandom pairingSeeds){
+		Agent agent = createAgent(learner, pairingSeeds);
+		Agent opponent = createAgent(opp, pairingSeeds);
+		opponent.initialize(agent);
+		agent.initialize(opponent);
+		return agent;
+	}
+
+	// play numGames games between two agents and return {wins, ties, losses} for the first seat.
+	private int[] play(Agent first, Agent second){
+		int[] tally = new int[3];
+		for(int i = 0; i < numGames; i++){
+			switch(new Game(first, second).playGame()){
+				case Consts.GameWon:	tally[0]++; break;
+				case Consts.GameTied:	tally[1]++; break;
+				case Consts.GameLost:	tally[2]++; break;
+			}
+		}
+		return tally;
+	}
+
+	// create a participant with its own random number generator, seeded from the pairing's.
+	private static Agent createAgent(int participant, SplittableRandom pairingSeeds){
+		try{
+			Agent agent = Learner[participant] ? TicTacToe.createAgent(Types[participant])
+											   : TicTacToe.createOpponent(Types[participant]);
+			agent.setRandom(new Random(pairingSeeds.nextLong()));
+			return agent;
+		} catch(ParameterException e){
+			throw new IllegalStateException(e.getMessage());
+		}
+	}
+
+	// Fit an Elo rating to every game played. Rather than updating ratings one game at a time (which makes the
+	//  result depend on the order in which games finish), ratings are moved towards the point where each player's
+	//  expected score equals their actual score, and the deviation is taken from the curvature of the fit.
+	public void computeRatings(){
+		int numPlayers = Names.length;
+		ratings = new double[numPlayers];
+		deviations = new double[numPlayers];
+		Arrays.fill(ratings, InitialRating);
+
+		double q = Math.log(10) / RatingScale;
+		double maxChange = 1.0;
+		for(int itr = 0; itr < MaxRatingIterations && maxChange > RatingTolerance; itr++){
+			maxChange = 0.0;
+			for(int p = 0; p < numPlayers; p++){
+				// every player starts with one virtual draw against an average player, which keeps the fit finite
+				//  for a player that never drops a game.
+				double prior = expectedScore(ratings[p], InitialRating);
+				double actual = 0.5, expected = prior, information = prior * (1 - prior);
+				for(int o = 0; o < numPlayers; o++){
+					// games where p took the first seat and where p took the second seat.
+					for(int seat = 0; seat < 2; seat++){
+						int[] r = (seat == 0) ? results[p][o] : results[o][p];
+						if(r == null)
+							continue;
+						int games = r[0] + r[1] + r[2];
+						double score = (seat == 0) ? r[0] + 0.5*r[1] : r[2] + 0.5*r[1];
+						double e = expectedScore(ratings[p], ratings[o]);
+						actual += score;
+						expected += games * e;
+						information += games * e * (1 - e);
+					}
+				}
+				// Newton step towards actual == expected, limited so that unbeaten players don't run away.
+				double change = (actual - expected) / (q * information);
+				change = Math.max(-RatingScale, Math.min(RatingScale, change));
+				ratings[p] += change;
+				deviations[p] = 1.0 / (q * Math.sqrt(information));
+				maxChange = Math.max(maxChange, Math.abs(change));
+			}
+		}
+	}
+
+	// probability that a player rated 'rating' scores against a player rated 'oppRating'.
+	private static double expectedScore(double rating, double oppRating){
+		return 1.0 / (1.0 + Math.pow(10, (oppRating - rating) / RatingScale));
+	}
+
+	// display the results matrix and ratings to the user.
+	public void showResults(){
+		System.out.println("Results (first seat wins/draws/losses, first seat down, second seat across):");
+		StringBuilder header = new StringBuilder(String.format("%-12s", ""));
+		for(String name : Names)
+			header.append(String.format("%-16s", name));
+		System.out.println(header);
+		for(int i = 0; i < Names.length; i++){
+			StringBuilder row = new StringBuilder(String.format("%-12s", Names[i]));
+			for(int j = 0; j < Names.length; j++){
+				int[] r = results[i][j];
+				row.append(String.format("%-16s", (r == null) ? "-" : r[0] + "/" + r[1] + "/" + r[2]));
+			}
+			System.out.println(row);
+		}
+		System.out.println();
+		System.out.println("Ratings:");
+		for(int p : rankedPlayers())
+			System.out.println(String.format("%-12s %7.1f +/- %.1f", Names[p], ratings[p], deviations[p]));
+	}
+
+	// write the results matrix and ratings as CSV.
+	public void writeResults(String fileName) throws IOException {
+		PrintWriter out = new PrintWriter(new FileWriter(fileName));
+		try{
+			StringBuilder header = new StringBuilder("first\\second");
+			for(String name : Names)
+				header.append(",").append(name);
+			out.println(header);
+			for(int i = 0; i < Names.length; i++){
+				StringBuilder row = new StringBuilder(Names[i]);
+				for(int j = 0; j < Names.length; j++){
+					int[] r = results[i][j];
+					row.append(",").append((r == null) ? "" : r[0] + "/" + r[1] + "/" + r[2]);
+				}
+				out.println(row);
+			}
+			out.println();
+			out.println("player,rating,deviation");
+			for(int p : rankedPlayers())
+				out.println(Names[p] + "," + String.format(Locale.ROOT, "%.1f", ratings[p]) + "," +
+							String.format(Locale.ROOT, "%.1f", deviations[p]));
+		}
+		finally{
+			out.close();
+		}
+	}
+
+	// players in order of decreasing rating.
+	private Integer[] rankedPlayers(){
+		Integer[] order = new Integer[Names.length];
+		for(int i = 0; i < order.length; i++)
+			order[i] = i;
+		Arrays.sort(order, (a, b) -> Double.compare(ratings[b], ratings[a]));
+		return order;
+	}
+}
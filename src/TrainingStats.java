@@ -0,0 +1,113 @@
+/*
+ * Tic Tac Toe A simple machine learning simulator.
+ *
+ * Class: TrainingStats
+ *
+ * A container class holding measurements from the last time a learning agent was initialized: how long the shared
+ * StateGraph took to build, how many states the agent's tables hold and how long it took to set them up from the
+ * graph, how many sweeps over the value table training took and how long they took, and, for policy iteration, how
+ * many policy improvement rounds were needed.
+ *
+ * Author: 	Toby Waite
+ * Contact: toby.waite@gmail.com
+ * Updated: November 16th, 2010.
+ */
+
+public class TrainingStats {
+
+	// building the StateGraph. The graph is built once per process, when the first learning agent is created, so
+	//  every agent reports the same time.
+	public long expansionNanos;
+
+	// value table setup
+	public int states;
+	public long setupNanos;
+
+	// sweeps over the value table, during value iteration or policy evaluation
+	public int sweeps;
+	public long sweepNanos;
+
+	// policy improvement (policy iteration only)
+	public int policyRounds;
+	public long improvementNanos;
+
+	// total time spent in initialize
+	public long totalNanos;
+
+	// warm starts (see ValueItrAgent.warmStart). coldSweeps is the number of sweeps training takes from scratch, if
+	//  known: the sweeps taken, for a cold start, or those of the training the warm start table came from.
+	public boolean warmStarted;
+	public int coldSweeps;
+
+	// Record the end of table setup, sweeps and policy rounds. Each is added to these stats, to the
+	//  process wide Counters, and committed as a flight recorder event. The events must have been begun when the
+	//  work started, or be null if the recorder wasn't running.
+	void endSetup(TableSetupEvent event, String agent, int numStates, long startNanos){
+		states = numStates;
+		setupNanos = System.nanoTime() - startNanos;
+		Counters.TableSetups.increment();
+		Counters.StatesSetUp.add(numStates);
+		Counters.SetupNanos.add(setupNanos);
+		if(event == null)
+			return;
+		event.agent = agent;
+		event.states = numStates;
+		event.commit();
+	}
+
+	void endSweep(SweepEvent event, String agent, double maxDelta, int statesTouched, long startNanos){
+		long nanos = System.nanoTime() - startNanos;
+		sweeps++;
+		sweepNanos += nanos;
+		Counters.Sweeps.increment();
+		Counters.Backups.add(statesTouched);
+		Counters.SweepNanos.add(nanos);
+		if(event == null)
+			return;
+		event.agent = agent;
+		event.sweep = sweeps;
+		event.maxDelta = maxDelta;
+		event.statesTouched = statesTouched;
+		event.commit();
+	}
+
+	void endPolicyRound(PolicyRoundEvent event, String agent, int policiesChanged, long startNanos){
+		long nanos = System.nanoTime() - startNanos;
+		policyRounds++;
+		improvementNanos += nanos;
+		Counters.PolicyRounds.increment();
+		Counters.PolicyChanges.add(policiesChanged);
+		Counters.ImprovementNanos.add(nanos);
+		if(event == null)
+			return;
+		event.agent = agent;
+		event.round = policyRounds;
+		event.policiesChanged = policiesChanged;
+		event.commit();
+	}
+
+	// the number of sweeps a warm start saved, or zero if it didn't or the cold start count isn't known.
+	public int sweepsSaved(){
+		return (warmStarted && coldSweeps > 0) ? Math.max(0, coldSweeps - sweeps) : 0;
+	}
+
+	// the average time of one sweep, or zero if there were none.
+	public double nanosPerSweep(){
+		return (sweeps == 0) ? 0.0 : sweepNanos / (double)sweeps;
+	}
+
+	public String toString(){
+		String result = states + " states expanded in " + String.format("%.1f", expansionNanos / 1e6) +
+						"ms (once per process), set up in " + String.format("%.1f", setupNanos / 1e6) + "ms, " +
+						sweeps + " sweeps in " + String.format("%.1f", sweepNanos / 1e6) + "ms (" +
+						String.format("%.2f", nanosPerSweep() / 1e6) + "ms per sweep)";
+		if(policyRounds > 0)
+			result += ", " + policyRounds + " policy rounds (" + String.format("%.1f", improvementNanos / 1e6) +
+					  "ms improving)";
+		if(warmStarted && coldSweeps > 0)
+			result += ", warm start saved " + sweepsSaved() + " of " + coldSweeps + " sweeps";
+		else if(warmStarted)
+			result += ", warm started";
+		return result;
+	}
+}
@@ -0,0 +1,67 @@
+/*
+ * Tic Tac Toe A simple machine learning simulator.
+ *
+ * Class: TransitionModel
+ *
+ * An opponent's getSuccessorStates, worked out once for every state in the StateGraph and stored in primitive
+ * arrays: for each state, the states the opponent can move to and the probability of each. The learning agents
+ * ask the opponent for these distributions on every backup; given a TransitionModel (see setTransitionModel) they
+ * read them from here instead, so several agents trained against the same opponent can share the one model.
+ *
+ * The model is a snapshot. It suits opponents whose behaviour depends only on the board, like the random agents,
+ * but not an OpponentModel, whose estimates change as games are played.
+ *
+ * Author: 	Toby Waite
+ * Contact: toby.waite@gmail.com
+ * Updated: November 16th, 2010.
+ */
+
+import java.util.ArrayList;
+
+public class TransitionModel {
+
+	private StateGraph graph;
+	// compressed rows: the successors of state i are entries start[i] up to start[i+1], in the order the opponent
+	//  listed them.
+	private int[] start;
+	private int[] target;
+	private double[] probability;
+
+	// Ask the opponent for its successor states from every state in the graph where the game is in progress.
+	public TransitionModel(Agent opponent){
+		graph = StateGraph.get();
+		start = new int[graph.size() + 1];
+		ArrayList<Integer> targets = new ArrayList<Integer>();
+		ArrayList<Double> probabilities = new ArrayList<Double>();
+		for(int i = 0; i < graph.size(); i++){
+			start[i] = targets.size();
+			if(graph.isTerminal(i))
+				continue;
+			Game game = new Game(opponent, opponent, StateKey.decode(graph.getKey(i)));
+			for(TransitionPair successor : opponent.getSuccessorStates(game)){
+				targets.add(graph.indexOf(StateKey.encode(successor.game.getBoard())));
+				probabilities.add(successor.probability);
+			}
+		}
+		start[graph.size()] = targets.size();
+		target = new int[targets.size()];
+		probability = new double[targets.size()];
+		for(int e = 0; e < target.length; e++){
+			target[e] = targets.get(e);
+			probability[e] = probabilities.get(e);
+		}
+	}
+
+	// the number of states the opponent can move to from a state (by StateGraph index).
+	public int getSuccessorCount(int index){
+		return start[index+1] - start[index];
+	}
+
+	// the n-th state the opponent can move to, and the probability it does.
+	public int getSuccessor(int index, int n){
+		return target[start[index] + n];
+	}
+	public double getProbability(int index, int n){
+		return probability[start[index] + n];
+	}
+}
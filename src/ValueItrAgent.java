@@ -30,55 +30,141 @@
 
 import java.util.ArrayList;
 import java.util.Enumeration;
-import java.util.Hashtable;
-import java.util.Random;
+import java.util.HashSet;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class ValueItrAgent extends Agent {
 
-	// A hashtable is used to store the state values for tic tac toe. This allows us to store only values of reachable
-	//  tic tac toe states (5478 states), rather than all 19,683 (3^9) possible configurations of the 3x3 grid.
-	private Hashtable<Integer, Double> stateValues;
+	// A hashtable is used to store the state values for tic tac toe by default (see HashStateTable). This allows us
+	//  to store only values of reachable tic tac toe states (5478 states), rather than all 19,683 (3^9) possible
+	//  configurations of the 3x3 grid.
+	private StateTable stateTable;
 	private Agent opponent;
+	// the reachable states and the moves between them, shared by every agent.
+	private StateGraph graph;
+	// measurements from the last call to initialize.
+	private TrainingStats stats;
+	// if true, initialize trains on a background thread, publishing a snapshot of the policy after each sweep, and
+	//  pickMove plays from the latest snapshot.
+	private boolean background;
+	private final AtomicReference<PolicySnapshot> snapshot = new AtomicReference<PolicySnapshot>();
+	// a table from an earlier training to start the next training from (see warmStart), or null.
+	private StateTable warmTable;
+	private int warmColdSweeps;
+	// the discount factor and rewards to learn with.
+	private LearningParams params = new LearningParams();
+	// the opponent's move probabilities, worked out ahead of time, or null to ask the opponent on every backup.
+	private TransitionModel model;
 
 	public ValueItrAgent(){
-		r = new Random();
-		stateValues = new Hashtable<Integer, Double>();
+		stateTable = new HashStateTable();
+		graph = StateGraph.get();
+	}
+
+	// Keep the state table somewhere other than the heap (see StateTable). This must be called before initialize.
+	public void setStateTable(StateTable table){
+		stateTable = table;
 	}
 	
+	// Start the next training from the values in a table left by an earlier training, rather than from
+	//  Consts.InitialValue. coldSweeps is the number of sweeps the earlier training took from scratch, or 0 if it
+	//  isn't known, and is used to report the sweeps saved (see TrainingStats). This must be called before
+	//  initialize, and applies to the next training only.
+	public void warmStart(StateTable table, int coldSweeps){
+		warmTable = table;
+		warmColdSweeps = coldSweeps;
+	}
+
+	// Start the next training from another trained agent's values.
+	public void warmStart(ValueItrAgent trained){
+		warmStart(trained.stateTable, trained.stats.coldSweeps);
+	}
+
+	// Learn with the given discount factor and rewards rather than the defaults in Consts. This must be called
+	//  before initialize.
+	public void setLearningParams(LearningParams learningParams){
+		params = learningParams;
+	}
+	public LearningParams getLearningParams(){
+		return params;
+	}
+
+	// Read the opponent's move probabilities from a model of the opponent built ahead of time (see TransitionModel),
+	//  rather than asking the opponent. This must be called before initialize.
+	public void setTransitionModel(TransitionModel transitionModel){
+		model = transitionModel;
+	}
+
+	// Train in the background (see PolicySnapshot) rather than in initialize. This must be called before initialize.
+	public void setBackgroundTraining(boolean enabled){
+		background = enabled;
+	}
+
+	// the latest policy published by background training, or null if there isn't one yet.
+	public PolicySnapshot getSnapshot(){
+		return snapshot.get();
+	}
+
 	// Initialize the Agent. This involves fully exploring the state space, and then iteratively updating the value table.
 	public void initialize(Agent enemyAgent){
 		// current opponent required for Machine Learning model.
 		opponent = enemyAgent;
+		if(!background){
+			train();
+			return;
+		}
+		snapshot.set(null);
+		Thread trainer = new Thread(new Runnable(){
+			public void run(){
+				train();
+			}
+		}, getClass().getName() + " training");
+		trainer.setDaemon(true);
+		trainer.start();
+	}
+
+	// set up the value table and run value iteration.
+	private void train(){
+		long start = System.nanoTime();
+		TableSetupEvent setup = null;
+		if(Counters.recording()){
+			setup = new TableSetupEvent();
+			setup.begin();
+		}
+		stats = new TrainingStats();
+		stats.expansionNanos = graph.getBuildNanos();
 		// initialize the state value table.
 		initStateSpace();
+		stats.endSetup(setup, getClass().getName(), stateTable.size(), start);
 		// teach the value iteration agent an optimal policy given the current opponent.
 		trainAgent();
+		stats.totalNanos = System.nanoTime() - start;
+		if(warmTable != null){
+			stats.warmStarted = true;
+			stats.coldSweeps = warmColdSweeps;
+			warmTable = null;
+		}
+		else
+			stats.coldSweeps = stats.sweeps;
+		if(background)
+			publish(true);
+	}
+
+	// return measurements from the last call to initialize.
+	public TrainingStats getTrainingStats(){
+		return stats;
 	}
 	
-	// initialize the value table. This requires fully expanding the game state space to add each reachable state to the table.
+	// initialize the value table, adding each reachable state from the state graph, starting from the warm start
+	//  table if there is one.
 	private void initStateSpace() {
-		Game newGame = new Game(this, opponent);	
-		expandStateSpace(newGame); // begin recursing down the game tree. 
-	}
-
-	// recursively expand the game tree, exploring all possible moves.
-	private void expandStateSpace(Game game) {
-		int state = game.evaluateGameState();
-		// if key exists, we've expanded this subtree already. Returning now avoids unnecessary traversals.
-		if(stateValues.containsKey(genStateKey(game.getBoard()))){
-			return; 
-		}
-		// if the game has already ended, we are at a terminal game state. 
-		// Add it to the table, but don't recurse.
-		else if(state != Consts.GameInProgress){
-			stateValues.put(genStateKey(game.getBoard()), Consts.InitialValue);
-		}
-		else{
-			stateValues.put(genStateKey(game.getBoard()), Consts.InitialValue);
-			// recurse down the game tree to all remaining moves.
-			for (int nextMove : game.possibleMoves()){
-				expandStateSpace(game.simulateMove(nextMove));
-			}
+		for(int i = 0; i < graph.size(); i++){
+			int key = graph.getKey(i);
+			if(warmTable != null && warmTable.containsKey(key))
+				stateTable.putValue(key, warmTable.getValue(key));
+			else
+				stateTable.putValue(key, Consts.InitialValue);
 		}
 	}
 
@@ -91,44 +177,120 @@ public class ValueItrAgent extends Agent {
 		// iterate until the maximum change in value from the last iteration is zero. 
 		while(deltaValue > maxDelta){
 
+			long sweepStart = System.nanoTime();
+			SweepEvent sweep = null;
+			if(Counters.recording()){
+				sweep = new SweepEvent();
+				sweep.begin();
+			}
 			deltaValue = 0.0;
 
-			Enumeration<Integer> keys = stateValues.keys();			
+			Enumeration<Integer> keys = stateTable.keys();			
 			Integer key;
 			Double oldValue, newValue;
 
 			// iterate over all states in the stateValue table.
 			while(keys.hasMoreElements()){
 				key = keys.nextElement();
-				oldValue = stateValues.get(key);
+				oldValue = stateTable.getValue(key);
 				updateValue(key); // Calcluate the new value for the current key
-				newValue = stateValues.get(key);
+				newValue = stateTable.getValue(key);
 				deltaValue = Math.max(Math.abs(oldValue-newValue), deltaValue); // track largest change in value
 			}	
+			stats.endSweep(sweep, getClass().getName(), deltaValue, stateTable.size(), sweepStart);
+			if(background)
+				publish(false);
 		}
 	}
 	
+	// Publish a snapshot of the moves the current values give.
+	private void publish(boolean converged){
+		snapshot.set(new PolicySnapshot(currentMoves(), stats.sweeps, converged));
+	}
+
+	// Freeze the trained agent into an immutable FrozenAgent that plays as it does. This must be called after
+	//  initialize and, when training in the background, once training has finished.
+	public FrozenAgent freeze(){
+		if(background){
+			PolicySnapshot latest = snapshot.get();
+			if(latest == null || !latest.isConverged())
+				throw new IllegalStateException("training has not finished");
+		}
+		return new FrozenAgent(currentMoves());
+	}
+
+	// the move the current values give in every state (by StateGraph index), choosing moves as pickMove does.
+	private byte[] currentMoves(){
+		byte[] moves = new byte[graph.size()];
+		for(int i = 0; i < graph.size(); i++){
+			double maxVal = Double.NEGATIVE_INFINITY;
+			int bestMove = Consts.NoMove;
+			for(int n = 0; n < graph.getSuccessorCount(i); n++){
+				double value = stateTable.getValue(graph.getKey(graph.getSuccessor(i, n)));
+				if(value > maxVal){
+					maxVal = value;
+					bestMove = graph.getSuccessorMove(i, n);
+				}
+			}
+			moves[i] = (byte)bestMove;
+		}
+		return moves;
+	}
+
+	// Retrain using the opponent moves observed since the last call, when the opponent is an OpponentModel. Rather
+	//  than starting training over, only the states whose backups use a changed estimate are backed up again: the
+	//  parents of each state where the opponent model changed, and then, for every state whose value changes, the
+	//  states two moves earlier, whose backups use it. States are backed up deepest first, so each one is backed up
+	//  once, after everything it depends on.
+	public void adapt(){
+		if(!(opponent instanceof OpponentModel))
+			return;
+		PriorityQueue<Integer> pending = new PriorityQueue<Integer>(64, StateKey.DeepestFirst);
+		HashSet<Integer> queued = new HashSet<Integer>();
+		for(int changed : ((OpponentModel)opponent).takeChangedStates()){
+			for(int parent : StateKey.parents(changed))
+				queueBackup(parent, pending, queued);
+		}
+		while(!pending.isEmpty()){
+			Integer key = pending.poll();
+			double oldValue = stateTable.getValue(key);
+			updateValue(key);
+			if(stateTable.getValue(key) != oldValue){
+				for(int parent : StateKey.parents(key)){
+					for(int grandparent : StateKey.parents(parent))
+						queueBackup(grandparent, pending, queued);
+				}
+			}
+		}
+	}
+
+	// queue a state to be backed up by adapt, if it is in the value table and not queued already.
+	private void queueBackup(int key, PriorityQueue<Integer> pending, HashSet<Integer> queued){
+		if(stateTable.containsKey(key) && queued.add(key))
+			pending.add(key);
+	}
+
 	// Update the value in the value table. This is the update step in the value iteration algorithm.
 	private void updateValue(Integer key) {
-		// Create an instance of a game that matches the current key.
-		Game game = gameFromKey(key);
+		int index = graph.indexOf(key);
 		// if the current game is a terminal state, assign the reward for that state as this state's value.
-		if(game.evaluateGameState() != Consts.GameInProgress){
-			stateValues.put(key, (double)getReward(game));
+		if(graph.isTerminal(index)){
+			stateTable.putValue(key, getReward(graph.getOutcome(index)));
 			return;
 		}
 		
 		// initialize Value Iteration parameters.
-		Double maxReward = -20.0;
+		Double maxReward = Double.NEGATIVE_INFINITY;
 		Double moveValue;
 		
 		int maxAction;
 		
-		// find the action with the best reward.
-		for(int move : game.possibleMoves()){
-			Game nextTurn = game.simulateMove(move);
-			moveValue = (double)getReward(nextTurn);
-			if(nextTurn.evaluateGameState() != Consts.GameInProgress){
+		// find the action with the best reward. The state graph gives the state after each possible move.
+		for(int n = 0; n < graph.getSuccessorCount(index); n++){
+			int move = graph.getSuccessorMove(index, n);
+			int nextTurn = graph.getSuccessor(index, n);
+			moveValue = getReward(graph.getOutcome(nextTurn));
+			if(graph.isTerminal(nextTurn)){
 				// track the best reward and the move that returns that reward.
 				if(moveValue > maxReward){
 					maxReward = moveValue;
@@ -137,21 +299,10 @@ public class ValueItrAgent extends Agent {
 				continue;
 			}
 			
-			// ask opponent for transition probabilities to all next states for our best move.
-			ArrayList<TransitionPair> successorStates = 
-				opponent.getSuccessorStates(nextTurn);
-
 			// The value of the current square is the reward for the last action plus the sum of the value 
 			// over all possible successor states weighted by each state's transition probability and
 			// multiplied by the discount factor.
-			for(TransitionPair successor : successorStates){
-				try{
-					moveValue += Consts.DiscountFactor * getValue(successor.game) * successor.probability; 
-				} catch(InvalidMoveException e){
-					System.out.println(e.getMessage());
-					e.printStackTrace();
-				}
-			}
+			moveValue = addReplyValues(moveValue, nextTurn);
 			// track the best move. 
 			if(moveValue > maxReward){
 				maxReward = moveValue;
@@ -159,7 +310,29 @@ public class ValueItrAgent extends Agent {
 			}		
 		}
 		// update value table.
-		stateValues.put(key, maxReward);
+		stateTable.putValue(key, maxReward);
+	}
+
+	// Add the discounted values of the opponent's replies from a state (by state graph index) to 'value', each
+	//  weighted by its transition probability. The probabilities come from the transition model if there is one,
+	//  and from the opponent otherwise.
+	private double addReplyValues(double value, int index){
+		if(model != null){
+			for(int n = 0; n < model.getSuccessorCount(index); n++)
+				value += params.discountFactor * stateTable.getValue(graph.getKey(model.getSuccessor(index, n))) *
+						 model.getProbability(index, n);
+			return value;
+		}
+		// ask opponent for transition probabilities to all next states.
+		for(TransitionPair successor : opponent.getSuccessorStates(gameFromKey(graph.getKey(index)))){
+			try{
+				value += params.discountFactor * getValue(successor.game) * successor.probability; 
+			} catch(InvalidMoveException e){
+				System.out.println(e.getMessage());
+				e.printStackTrace();
+			}
+		}
+		return value;
 	}
 
 	public void printState(int[] board){
@@ -181,8 +354,17 @@ public class ValueItrAgent extends Agent {
 	}
 
 	public int pickMove(Game game) {
+		// while training in the background, play from the latest snapshot, or at random until there is one.
+		if(background){
+			PolicySnapshot latest = snapshot.get();
+			if(latest == null){
+				Integer[] moves = game.possibleMoves();
+				return moves[random().nextInt(moves.length)];
+			}
+			return latest.getMove(game.getBoard());
+		}
 		Integer[] possibleMoves = game.possibleMoves();
-		Double maxVal = -99.0; // initialize to an large negative number. All possible states will have higher value than this.
+		Double maxVal = Double.NEGATIVE_INFINITY; // All possible states will have higher value than this.
 		int bestMove = Consts.NoMove;  
 				
 		// iterate over all possible moves and select the one with the highest value.
@@ -207,44 +389,33 @@ public class ValueItrAgent extends Agent {
 	// Given a game board, return the current value for the state of that Game. 
 	private Double getValue(Game game) throws InvalidMoveException {
 		int key = genStateKey(game.getBoard());
-		if(stateValues.containsKey(key))
-			return stateValues.get(key);
+		if(stateTable.containsKey(key))
+			return stateTable.getValue(key);
 		else{
-			throw new InvalidMoveException("value did not exist in stateValues table!");
+			throw new InvalidMoveException("value did not exist in state table!");
 		}
 	} 
 
 	/* 
 	 * This describes the reward function for an action based on the resulting game state.
-	 * A winning move provides a +10 reward, while a losing move provides a -10 reward.
+	 * By default (see LearningParams) a winning move provides a +10 reward, while a losing move provides a -10 reward.
 	 * A move that causes a tie results in a +1 move, and any other move gives a -1 reward.
 	 */
-	private int getReward(Game game) {
-		int reward;
-		switch (game.evaluateGameState()){
-			case Consts.GameInProgress:	reward = Consts.RewardInProgress; 	break;
-			case Consts.GameWon:		reward = Consts.RewardWon; 			break;
-			case Consts.GameLost:		reward = Consts.RewardLost;			break;
-			case Consts.GameTied:		reward = Consts.RewardTied; 		break;
-			default:					reward = Consts.RewardOther; 		break;
-		}
-		return reward;
+	private double getReward(int gameState) {
+		return params.getReward(gameState);
 	}
 
 	// This function generates a unique integer representation of the given game board. 
 	//  It interprets a Game's "board" array as the digits of a ternary (base three) number and returns 
 	//  the decimal representation of that number. This is used to calculate game state hash values.
-	private int genStateKey(int[] board){
-		int hashVal = 0;
-		for(int i=0; i<board.length; i++){
-			hashVal += board[i]*(Math.pow(3,i));
-		}
-		return hashVal;
+	//  (Package-private, along with gameFromKey, so that the benchmarks can reach them.)
+	int genStateKey(int[] board){
+		return StateKey.encode(board);
 	}
 	
 	// Given a gameState hash key, create a game with equivalent state. Performs the reverse action described
 	//  by the genStateKey method.
-	private Game gameFromKey(Integer key) {
+	Game gameFromKey(Integer key) {
 		// convert ternary key to game board representation. Create a new game with that board.
 		int[] board = new int[9];
 		int xCount = 0, oCount = 0;
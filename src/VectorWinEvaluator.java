@@ -0,0 +1,64 @@
+/*
+ * Tic Tac Toe A simple machine learning simulator.
+ *
+ * Class: VectorWinEvaluator
+ *
+ * Checks a full SIMD register of boards per operation using the incubating Vector API. For each of the eight lines
+ * the X and O masks of every lane are ANDed with the line and compared against it, and the per-lane results are
+ * combined into game states with masked blends. Any boards left over at the end of the arrays are checked one at a
+ * time.
+ *
+ * This class needs the jdk.incubator.vector module both to compile and to run:
+ *   javac --add-modules jdk.incubator.vector ...
+ *   java --add-modules jdk.incubator.vector ...
+ * Use WinEvaluator.create() rather than constructing it directly, so that the scalar version is used when the
+ * module is missing.
+ *
+ * Author: 	Toby Waite
+ * Contact: toby.waite@gmail.com
+ * Updated: November 16th, 2010.
+ */
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+public class VectorWinEvaluator extends WinEvaluator {
+
+	private static final VectorSpecies<Integer> Species = IntVector.SPECIES_PREFERRED;
+
+	public void evaluate(int[] xMasks, int[] oMasks, int count, int[] states){
+		int upperBound = Species.loopBound(count);
+		int i = 0;
+		for(; i < upperBound; i += Species.length()){
+			IntVector x = IntVector.fromArray(Species, xMasks, i);
+			IntVector o = IntVector.fromArray(Species, oMasks, i);
+
+			VectorMask<Integer> won = hasLine(x);
+			VectorMask<Integer> lost = hasLine(o);
+			VectorMask<Integer> tied = x.or(o).compare(VectorOperators.EQ, BitBoard.Full);
+
+			// apply results in increasing order of precedence: a win beats a loss, which beats a tie.
+			IntVector state = IntVector.broadcast(Species, Consts.GameInProgress)
+				.blend(Consts.GameTied, tied)
+				.blend(Consts.GameLost, lost)
+				.blend(Consts.GameWon, won);
+			state.intoArray(states, i);
+		}
+		// finish off any remaining boards one at a time.
+		ScalarWinEvaluator.evaluateRange(xMasks, oMasks, i, count, states);
+	}
+
+	// lanes whose mask contains a complete line.
+	private static VectorMask<Integer> hasLine(IntVector masks){
+		VectorMask<Integer> found = Species.maskAll(false);
+		for(int line : BitBoard.Lines)
+			found = found.or(masks.and(line).compare(VectorOperators.EQ, line));
+		return found;
+	}
+
+	public String getName(){
+		return "vector(" + Species.length() + " lanes)";
+	}
+}
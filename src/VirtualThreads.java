@@ -0,0 +1,61 @@
+/*
+ * Tic Tac Toe A simple machine learning simulator.
+ *
+ * Class: VirtualThreads
+ *
+ * Runs tasks on virtual threads when the JVM has them (Java 21 and later), so that thousands of tasks that spend
+ * most of their time blocked on a socket don't each need a platform thread. The code is still built for older
+ * JVMs, so the virtual thread executor is found by reflection, and a pool of platform threads is used without it.
+ *
+ * Author: 	Toby Waite
+ * Contact: toby.waite@gmail.com
+ * Updated: November 16th, 2010.
+ */
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+public final class VirtualThreads {
+
+	// Executors.newVirtualThreadPerTaskExecutor, or null if this JVM doesn't have it.
+	private static final Method NewExecutor = findExecutor();
+
+	private VirtualThreads(){}
+
+	private static Method findExecutor(){
+		try{
+			Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			// on Java 19 and 20 virtual threads are a preview feature, and fail unless previews are enabled.
+			((ExecutorService)method.invoke(null)).shutdown();
+			return method;
+		} catch(Exception e){
+			return null;
+		}
+	}
+
+	// true if tasks will run on virtual threads.
+	public static boolean available(){
+		return NewExecutor != null;
+	}
+
+	// An executor that starts a new virtual thread for each task, or, without virtual threads, runs each task on a
+	//  pooled daemon thread, starting a new one whenever none is free.
+	public static ExecutorService newPerTaskExecutor(final String name){
+		if(NewExecutor != null){
+			try{
+				return (ExecutorService)NewExecutor.invoke(null);
+			} catch(Exception e){
+				// fall back to platform threads below.
+			}
+		}
+		return Executors.newCachedThreadPool(new ThreadFactory(){
+			public Thread newThread(Runnable task){
+				Thread thread = new Thread(task, name);
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+}
@@ -0,0 +1,41 @@
+/*
+ * Tic Tac Toe A simple machine learning simulator.
+ *
+ * Class: WinEvaluator
+ *
+ * A WinEvaluator works out the game state (in progress, won, lost or tied) of many boards at once. Boards are given
+ * as X and O bit masks (see BitBoard), and the result for each board is the same as Game.evaluateGameState would
+ * return for it: a board where X holds a line is won, otherwise a board where O holds a line is lost, otherwise a
+ * full board is tied.
+ *
+ * Two implementations are provided. ScalarWinEvaluator checks one board at a time, and VectorWinEvaluator uses the
+ * jdk.incubator.vector module to check a whole SIMD register of boards per operation. create() returns the vector
+ * version when the module is available (java --add-modules jdk.incubator.vector) and the scalar version otherwise.
+ * WinEvalBenchmark compares the two. BatchSimulator doesn't use either: it checks each game as it applies the
+ * game's move, which is faster there than a separate pass over the batch (see BatchSimulator).
+ *
+ * Author: 	Toby Waite
+ * Contact: toby.waite@gmail.com
+ * Updated: November 16th, 2010.
+ */
+
+public abstract class WinEvaluator {
+
+	// Write the game state of the first 'count' boards to 'states'.
+	public abstract void evaluate(int[] xMasks, int[] oMasks, int count, int[] states);
+
+	// a short name for the implementation, used in benchmark output.
+	public abstract String getName();
+
+	// Return the vector evaluator if the Vector API is available, or the scalar evaluator otherwise.
+	public static WinEvaluator create(){
+		try{
+			// loaded by name so that this class compiles and runs without the incubator module.
+			return (WinEvaluator)Class.forName("VectorWinEvaluator").getDeclaredConstructor().newInstance();
+		} catch(ReflectiveOperationException e){
+			return new ScalarWinEvaluator();
+		} catch(LinkageError e){
+			return new ScalarWinEvaluator();
+		}
+	}
+}